@@ -0,0 +1,39 @@
+package Yin.rpc.cousumer.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 标注在只有一个参数的远程接口方法上，指定同一接口中对应的批量方法，例如
+ * saveUser(User) 上标注 @BulkMethod("saveUsers") 对应 saveUsers(List&lt;User&gt;)。
+ *
+ * 多个线程并发调用单个方法时，InvokeProxy 在 windowMicros 微秒内（或凑满 maxSize 个后）
+ * 把这些参数合成一个 List 发起一次批量调用，再把结果拆给各个调用方：
+ * 批量方法返回与参数顺序一致、长度相同的 List 时，第 i 个调用方得到第 i 个元素，
+ * 否则每个调用方得到同一个结果；批量调用失败时每个调用方都得到同一个失败的 Response。
+ *
+ * 注意：标注后该方法的每次调用都会先等待最多一个窗口，顺序（非并发）调用的一方
+ * 没有可以合并的调用，只会多出 windowMicros 的延迟，只应标注在确实有大量并发调用的方法上。
+ */
+@Target({ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface BulkMethod {
+	/**
+	 * 批量方法名，参数为单个方法参数组成的 List
+	 */
+	String value();
+
+	/**
+	 * 第一个调用到达后最多等待的时间（微秒）
+	 */
+	long windowMicros() default 1000;
+
+	/**
+	 * 一次批量调用最多合并的调用数
+	 */
+	int maxSize() default 64;
+}
@@ -0,0 +1,18 @@
+package Yin.rpc.cousumer.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 标注在远程接口方法上，表示该方法可以安全地重复执行。
+ * 请求所在的连接断开时，还没有收到响应的幂等调用会在另一个可用连接上重新发送一次，
+ * 非幂等调用则立即以“连接已断开”的 Response 结束。
+ */
+@Target({ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface Idempotent {
+}
@@ -13,5 +13,8 @@ import org.springframework.stereotype.Component;
 @Documented
 @Component
 public @interface RemoteInvoke {
-	
+	/**
+	 * 该远程服务使用的序列化方式（json / binary），为空时使用 SerializerFactory 的默认值
+	 */
+	String serializer() default "";
 }
@@ -0,0 +1,21 @@
+package Yin.rpc.cousumer.codec;
+
+import java.util.List;
+
+import Yin.rpc.cousumer.param.ClientRequest;
+
+/**
+ * 批量请求，对应 TYPE_BATCH 帧，一个帧里携带多个请求。
+ * 每个请求保留自己的 requestId，服务端拆开后逐个分派，响应仍按 requestId 分别返回。
+ */
+public class Batch {
+	private final List<ClientRequest> requests;
+
+	public Batch(List<ClientRequest> requests) {
+		this.requests = requests;
+	}
+
+	public List<ClientRequest> getRequests() {
+		return requests;
+	}
+}
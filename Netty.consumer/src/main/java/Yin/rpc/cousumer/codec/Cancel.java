@@ -0,0 +1,17 @@
+package Yin.rpc.cousumer.codec;
+
+/**
+ * 取消消息，对应 TYPE_CANCEL 帧，只有帧头，requestId 即要取消的请求。
+ * 客户端超时或主动取消调用时发送，服务端据此丢弃还在排队的请求，或按配置中断正在执行的请求。
+ */
+public class Cancel {
+	private final long id;
+
+	public Cancel(long id) {
+		this.id = id;
+	}
+
+	public long getId() {
+		return id;
+	}
+}
@@ -0,0 +1,27 @@
+package Yin.rpc.cousumer.codec;
+
+import java.util.Map;
+
+import io.netty.util.AttributeKey;
+
+/**
+ * 握手消息，对应 TYPE_HANDSHAKE 帧。
+ *
+ * - 连接建立后客户端发送一个不带方法表的 Handshake；
+ * - 服务端回复带方法表的 Handshake，methods[i] 是方法 id 为 i 的方法签名，
+ *   客户端把它转成 签名 → 方法id 存到 channel 的 METHOD_IDS 属性上；
+ * - 握手完成前发出的请求仍然携带签名，服务端按签名查找。
+ */
+public class Handshake {
+	public static final AttributeKey<Map<String, Integer>> METHOD_IDS = AttributeKey.valueOf("rpc.methodIds");
+
+	private final String[] methods;
+
+	public Handshake(String[] methods) {
+		this.methods = methods;
+	}
+
+	public String[] getMethods() {
+		return methods;
+	}
+}
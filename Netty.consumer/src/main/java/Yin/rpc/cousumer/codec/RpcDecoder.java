@@ -0,0 +1,92 @@
+package Yin.rpc.cousumer.codec;
+
+import Yin.rpc.cousumer.param.Response;
+import Yin.rpc.cousumer.serialize.Serializer;
+import Yin.rpc.cousumer.serialize.SerializerFactory;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.CorruptedFrameException;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+import io.netty.util.CharsetUtil;
+
+/**
+ * RpcDecoder
+ * -----------------------------------------------
+ * 🔹 作用：
+ * 客户端入站解码器，由 LengthFieldBasedFrameDecoder 根据头部 bodyLength 切出完整帧，
+ * 校验 magic / version 后按帧头中的序列化方式把消息体还原为 Response、StreamChunk、Handshake 或 Heartbeat。
+ * requestId 以帧头为准。
+ * 帧是入站缓冲区的切片，Response 由序列化实现直接从帧中读取，不先拷贝成 byte[]。
+ */
+public class RpcDecoder extends LengthFieldBasedFrameDecoder {
+
+	public RpcDecoder() {
+		super(RpcProtocol.MAX_FRAME_LENGTH, RpcProtocol.LENGTH_FIELD_OFFSET, RpcProtocol.LENGTH_FIELD_LENGTH);
+	}
+
+	@Override
+	protected Object decode(ChannelHandlerContext ctx, ByteBuf in) throws Exception {
+		ByteBuf frame = (ByteBuf) super.decode(ctx, in);
+		if(frame == null){
+			return null;
+		}
+		try {
+			short magic = frame.readShort();
+			if(magic != RpcProtocol.MAGIC){
+				throw new CorruptedFrameException("非法的magic:"+Integer.toHexString(magic & 0xFFFF));
+			}
+			byte version = frame.readByte();
+			if(version != RpcProtocol.VERSION){
+				throw new CorruptedFrameException("不支持的协议版本:"+version);
+			}
+			byte type = frame.readByte();
+			byte serializerId = frame.readByte();
+			long requestId = frame.readLong();
+			frame.readInt();//bodyLength，父类已按它切好帧
+
+			switch (type) {
+			case RpcProtocol.TYPE_RESPONSE:
+				Serializer serializer = SerializerFactory.get(serializerId);
+				if(serializer == null){
+					throw new CorruptedFrameException("不支持的序列化方式:"+serializerId);
+				}
+				Response response = serializer.deserialize(frame, Response.class);//直接从帧中读取
+				response.setId(requestId);
+				response.setSerializer(serializerId);
+				return response;
+			case RpcProtocol.TYPE_STREAM:
+				int seq = frame.readInt();
+				byte[] body = new byte[frame.readableBytes()];
+				frame.readBytes(body);
+				return new StreamChunk(requestId, serializerId, seq, body);
+			case RpcProtocol.TYPE_HANDSHAKE:
+				//方法数(4) + 每个签名至少 2 字节的长度，分配数组之前先核对
+				if(frame.readableBytes() < 4){
+					throw new CorruptedFrameException("握手帧缺少方法表");
+				}
+				int count = frame.readInt();
+				if(count < 0 || count > frame.readableBytes() / 2){
+					throw new CorruptedFrameException("非法的方法数:"+count);
+				}
+				String[] methods = new String[count];
+				for(int i=0;i<methods.length;i++){
+					int len = frame.readUnsignedShort();
+					if(len > frame.readableBytes()){
+						throw new CorruptedFrameException("非法的签名长度:"+len);
+					}
+					methods[i] = frame.toString(frame.readerIndex(), len, CharsetUtil.UTF_8);
+					frame.skipBytes(len);
+				}
+				return new Handshake(methods);
+			case RpcProtocol.TYPE_PING:
+				return Heartbeat.PING;
+			case RpcProtocol.TYPE_PONG:
+				return Heartbeat.PONG;
+			default:
+				throw new CorruptedFrameException("未知的消息类型:"+type);
+			}
+		} finally {
+			frame.release();
+		}
+	}
+}
@@ -0,0 +1,132 @@
+package Yin.rpc.cousumer.codec;
+
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import Yin.rpc.cousumer.param.ClientRequest;
+import Yin.rpc.cousumer.serialize.Serializer;
+import Yin.rpc.cousumer.serialize.SerializerFactory;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.EncoderException;
+import io.netty.handler.codec.MessageToByteEncoder;
+
+/**
+ * RpcEncoder
+ * -----------------------------------------------
+ * 🔹 作用：
+ * 客户端出站编码器，把 ClientRequest / Heartbeat 编码成 {@link RpcProtocol} 定义的二进制帧。
+ * 消息体按 ClientRequest 上指定的序列化方式编码，序列化方式 id 写入帧头，
+ * 服务端会用同一种方式编码响应。
+ * 参数按接口方法的参数泛型类型序列化，二进制方式下 Bean 只写字段值。
+ * 握手完成后请求只携带服务端分配的方法id，握手前携带方法签名。
+ * 参数直接序列化进 MessageToByteEncoder 分配的池化 ByteBuf，不经过中间的 byte[]。
+ * Batch 编码为一个 BATCH 帧，其中每个请求保留自己的 requestId 和序列化方式。
+ * 调用超时或被取消时写出只有帧头的 CANCEL 帧，通知服务端放弃这个请求。
+ * 流式调用的额度写成 CREDIT 帧。
+ */
+public class RpcEncoder extends MessageToByteEncoder<Object> {
+
+	@Override
+	protected void encode(ChannelHandlerContext ctx, Object msg, ByteBuf out) throws Exception {
+		if(msg instanceof ClientRequest){
+			writeRequest(out, (ClientRequest) msg, ctx.channel().attr(Handshake.METHOD_IDS).get());
+		}else if(msg instanceof Batch){
+			writeBatch(out, (Batch) msg, ctx.channel().attr(Handshake.METHOD_IDS).get());
+		}else if(msg instanceof Credit){
+			writeHeader(out, RpcProtocol.TYPE_CREDIT, RpcProtocol.SERIALIZER_JSON, ((Credit) msg).getId(), 4);
+			out.writeInt(((Credit) msg).getCredits());
+		}else if(msg instanceof Cancel){
+			writeHeader(out, RpcProtocol.TYPE_CANCEL, RpcProtocol.SERIALIZER_JSON, ((Cancel) msg).getId(), 0);
+		}else if(msg instanceof Handshake){
+			writeHeader(out, RpcProtocol.TYPE_HANDSHAKE, RpcProtocol.SERIALIZER_JSON, 0L, 0);
+		}else if(msg == Heartbeat.PING){
+			writeHeader(out, RpcProtocol.TYPE_PING, RpcProtocol.SERIALIZER_JSON, 0L, 0);
+		}else if(msg == Heartbeat.PONG){
+			writeHeader(out, RpcProtocol.TYPE_PONG, RpcProtocol.SERIALIZER_JSON, 0L, 0);
+		}else{
+			throw new EncoderException("不支持的消息类型:"+msg.getClass().getName());
+		}
+	}
+
+	//参数直接序列化进 out，写完后回填帧头中的 bodyLength
+	private static void writeRequest(ByteBuf out, ClientRequest request, Map<String, Integer> methodIds) {
+		Serializer serializer = serializerOf(request);
+		int start = out.writerIndex();
+		writeHeader(out, RpcProtocol.TYPE_REQUEST, serializer.getId(), request.getId(), 0);
+		writeRequestBody(out, request, serializer, methodIds);
+		out.setInt(start + RpcProtocol.LENGTH_FIELD_OFFSET, out.writerIndex() - start - RpcProtocol.HEADER_LENGTH);
+	}
+
+	//批量请求体：请求数(4) + 每个请求的 序列化方式(1) + requestId(8) + 请求体长度(4) + 请求体
+	private static void writeBatch(ByteBuf out, Batch batch, Map<String, Integer> methodIds) {
+		int start = out.writerIndex();
+		writeHeader(out, RpcProtocol.TYPE_BATCH, RpcProtocol.SERIALIZER_JSON, 0L, 0);
+		out.writeInt(batch.getRequests().size());
+		for(ClientRequest request : batch.getRequests()){
+			Serializer serializer = serializerOf(request);
+			out.writeByte(serializer.getId());
+			out.writeLong(request.getId());
+			int lengthIndex = out.writerIndex();
+			out.writeInt(0);
+			writeRequestBody(out, request, serializer, methodIds);
+			out.setInt(lengthIndex, out.writerIndex() - lengthIndex - 4);
+		}
+		out.setInt(start + RpcProtocol.LENGTH_FIELD_OFFSET, out.writerIndex() - start - RpcProtocol.HEADER_LENGTH);
+	}
+
+	//请求体：方法id(4) + 剩余时间(4) + 按位置、按声明类型序列化的参数；
+	//还不知道方法id时为 UNKNOWN_METHOD(4) + 剩余时间(4) + 签名长度(2) + 签名(UTF-8) + 参数
+	private static void writeRequestBody(ByteBuf out, ClientRequest request, Serializer serializer, Map<String, Integer> methodIds) {
+		Integer methodId = methodIds == null ? null : methodIds.get(request.getCommand());
+		if(methodId != null){
+			out.writeInt(methodId);
+			out.writeInt(budgetOf(request));
+		}else{
+			out.writeInt(RpcProtocol.UNKNOWN_METHOD);
+			out.writeInt(budgetOf(request));
+			int lengthIndex = out.writerIndex();
+			out.writeShort(0);
+			out.setShort(lengthIndex, ByteBufUtil.writeUtf8(out, request.getCommand()));
+		}
+		writeArgs(out, serializer, request);
+	}
+
+	private static Serializer serializerOf(ClientRequest request) {
+		Serializer serializer = SerializerFactory.get(request.getSerializer());
+		return serializer == null ? SerializerFactory.getDefault() : serializer;
+	}
+
+	//写出时距离超时还剩的毫秒数，已经过期的请求至少写 1，由服务端丢弃
+	private static int budgetOf(ClientRequest request) {
+		long deadline = request.getDeadline();
+		if(deadline == 0){
+			return RpcProtocol.NO_DEADLINE;
+		}
+		long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+		return (int) Math.max(1, Math.min(Integer.MAX_VALUE, remaining));
+	}
+
+	static void writeArgs(ByteBuf out, Serializer serializer, ClientRequest request) {
+		Object[] args = request.getContent() == null ? new Object[0] : request.getContent();
+		Type[] types = request.getContentTypes();
+		if(types == null){
+			types = new Type[args.length];
+			Arrays.fill(types, Object.class);
+		}
+		serializer.serializeArgs(args, types, out);
+	}
+
+	private static void writeHeader(ByteBuf out, byte type, byte serializer, long requestId, int bodyLength) {
+		out.ensureWritable(RpcProtocol.HEADER_LENGTH + bodyLength);
+		out.writeShort(RpcProtocol.MAGIC);
+		out.writeByte(RpcProtocol.VERSION);
+		out.writeByte(type);
+		out.writeByte(serializer);
+		out.writeLong(requestId);
+		out.writeInt(bodyLength);
+	}
+}
@@ -0,0 +1,67 @@
+package Yin.rpc.cousumer.codec;
+
+/**
+ * RpcProtocol 定义了客户端与服务端之间的二进制帧格式。
+ *
+ * 帧结构（头部固定 17 字节，大端序）：
+ * <pre>
+ * +--------+---------+------+------------+-----------+------------+----------------+
+ * | magic  | version | type | serializer | requestId | bodyLength |      body      |
+ * | 2 byte | 1 byte  | 1 b  |   1 byte   |  8 byte   |   4 byte   | bodyLength byte|
+ * +--------+---------+------+------------+-----------+------------+----------------+
+ * </pre>
+ *
+ * 说明：
+ * - 通过 bodyLength 字段直接确定帧边界（LengthFieldBasedFrameDecoder），
+ *   不再逐字节扫描 "\r\n" 分隔符，消息体中也可以出现任意字节；
+ * - requestId 放在头部，收到响应时无需解析消息体即可定位对应的请求；
+ * - 心跳帧（PING/PONG）和取消帧（CANCEL，requestId 为要取消的请求）没有消息体，bodyLength 为 0。
+ *
+ * 消息体：
+ * - REQUEST   : 方法id(4 byte) + 剩余时间(4 byte) + 按参数声明类型序列化的参数；
+ *               方法id为 UNKNOWN_METHOD(-1) 时，剩余时间之后紧跟 签名长度(2 byte) + 方法签名(UTF-8)，再跟参数；
+ *               剩余时间是客户端写出请求时距离超时还剩的毫秒数，NO_DEADLINE(0) 表示不限，
+ *               服务端据此计算截止时间，过期的请求不再执行；
+ * - BATCH     : 请求数(4 byte) + 每个请求的 序列化方式(1 byte) + requestId(8 byte) + 请求体长度(4 byte) + REQUEST 请求体，
+ *               帧头中的 requestId 和 serializer 不使用；服务端拆开后逐个分派，响应仍是各自的 RESPONSE 帧；
+ * - RESPONSE  : 序列化后的 Response；
+ * - STREAM    : 序号(4 byte) + 按元素类型序列化的一个元素，方法返回 Iterator 时逐个写出，
+ *               最后由这个请求的 RESPONSE 帧结束（成功时 result 为元素个数）；
+ * - CREDIT    : 额度(4 byte)，客户端允许服务端再写出的 STREAM 帧数；
+ * - HANDSHAKE : 客户端发送时为空；服务端回复 方法数(4 byte) + 按方法id顺序排列的 签名长度(2 byte) + 方法签名(UTF-8)。
+ *
+ * 方法签名形如 UserRemote.saveUser(User)，由接口简单类名、方法名和参数简单类名组成，
+ * 重载方法的签名不同，不会互相覆盖；两端的包名可以不同。
+ */
+public class RpcProtocol {
+	public static final short MAGIC = (short) 0xBABE;
+	public static final byte VERSION = 1;
+
+	public static final int HEADER_LENGTH = 17;
+	public static final int LENGTH_FIELD_OFFSET = 13;
+	public static final int LENGTH_FIELD_LENGTH = 4;
+	public static final int MAX_FRAME_LENGTH = 16 * 1024 * 1024;//单帧最大16M
+
+	//消息类型
+	public static final byte TYPE_REQUEST = 1;
+	public static final byte TYPE_RESPONSE = 2;
+	public static final byte TYPE_PING = 3;
+	public static final byte TYPE_PONG = 4;
+	public static final byte TYPE_HANDSHAKE = 5;
+	public static final byte TYPE_CANCEL = 6;
+	public static final byte TYPE_BATCH = 7;
+	public static final byte TYPE_STREAM = 8;
+	public static final byte TYPE_CREDIT = 9;
+
+	//请求中未携带方法id，按签名查找
+	public static final int UNKNOWN_METHOD = -1;
+
+	//请求中未携带剩余时间
+	public static final int NO_DEADLINE = 0;
+
+	//序列化方式
+	public static final byte SERIALIZER_JSON = 1;
+	public static final byte SERIALIZER_BINARY = 2;
+
+	private RpcProtocol(){}
+}
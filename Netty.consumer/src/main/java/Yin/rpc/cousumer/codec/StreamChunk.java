@@ -0,0 +1,35 @@
+package Yin.rpc.cousumer.codec;
+
+/**
+ * 流式响应中的一个元素，对应 TYPE_STREAM 帧。
+ * 解码时只拷贝出这个元素的字节，由 ResultStream 在调用方取用时按元素类型反序列化。
+ */
+public class StreamChunk {
+	private final long id;
+	private final byte serializer;
+	private final int seq;
+	private final byte[] body;
+
+	public StreamChunk(long id, byte serializer, int seq, byte[] body) {
+		this.id = id;
+		this.serializer = serializer;
+		this.seq = seq;
+		this.body = body;
+	}
+
+	public long getId() {
+		return id;
+	}
+
+	public byte getSerializer() {
+		return serializer;
+	}
+
+	public int getSeq() {
+		return seq;
+	}
+
+	public byte[] getBody() {
+		return body;
+	}
+}
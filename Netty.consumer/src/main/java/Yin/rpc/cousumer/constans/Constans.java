@@ -2,4 +2,11 @@ package Yin.rpc.cousumer.constans;
 
 public class Constans {
 	public static final String SERVER_PATH="/netty";
+	
+	//Response.code
+	public static final String SUCCESS="00000";
+	public static final String TIMEOUT="33333";//链路超时
+	public static final String CHANNEL_CLOSED="44444";//请求所在的连接已断开
+	public static final String OVERLOADED="55555";//服务端业务线程池已满，请求被拒绝
+	public static final String ERROR="66666";//服务端方法执行异常
 }
@@ -5,6 +5,7 @@ import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 
 /**
@@ -26,7 +27,7 @@ import io.netty.channel.ChannelFuture;
  * ⚙️ 使用场景：
  * - 被 NettyClient 调用，用于获取可用通道：
  *   {@code ChannelFuture f = ChannelManager.get(ChannelManager.position);}
- * - 当 ServerWatcher 监听到 Provider 下线时，会调用 removeChannel() 移除通道；
+ * - 当 ServerWatcher 监听到 Provider 下线或连接断开（channelInactive）时，会调用 removeChannel() 移除通道；
  * - 当新节点上线时，会调用 addChannel() 动态添加连接。
  *
  * -----------------------------------------------
@@ -58,6 +59,17 @@ public class ChannelManager {
         channelFutures.remove(channel);
     }
 
+    /**
+     * 按 Netty Channel 移除连接，连接断开（channelInactive）时调用。
+     */
+    public static void removeChnannel(Channel channel) {
+        for (ChannelFuture channelFuture : channelFutures) {
+            if (channelFuture.channel() == channel) {
+                channelFutures.remove(channelFuture);
+            }
+        }
+    }
+
     /**
      * 向连接池中添加一个新的 Channel。
      * 通常在新的 Provider 节点注册或重新连接时调用。
@@ -100,5 +112,27 @@ public class ChannelManager {
 
         return channelFuture;
     }
+
+    /**
+     * 选择一个与 exclude 不同且处于活跃状态的连接，用于在连接断开后重发幂等请求。
+     *
+     * @return 可用的 ChannelFuture，没有时返回 null
+     */
+    public static ChannelFuture select(Channel exclude) {
+        int size = channelFutures.size();
+        int start = position.getAndIncrement();
+        for (int i = 0; i < size; i++) {
+            ChannelFuture channelFuture;
+            try {
+                channelFuture = channelFutures.get(Math.abs((start + i) % size));
+            } catch (IndexOutOfBoundsException e) {
+                return null; // 遍历期间连接被移除
+            }
+            if (channelFuture.channel() != exclude && channelFuture.channel().isActive()) {
+                return channelFuture;
+            }
+        }
+        return null;
+    }
 }
 
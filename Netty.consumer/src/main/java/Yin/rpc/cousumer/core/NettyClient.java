@@ -1,31 +1,31 @@
 
 package Yin.rpc.cousumer.core;
 
+import java.lang.reflect.Type;
+import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.curator.framework.CuratorFramework;
 import org.apache.curator.framework.api.CuratorWatcher;
 
-import com.alibaba.fastjson.JSONObject;
-
+import Yin.rpc.cousumer.codec.Batch;
+import Yin.rpc.cousumer.codec.RpcDecoder;
+import Yin.rpc.cousumer.codec.RpcEncoder;
 import Yin.rpc.cousumer.constans.Constans;
+import Yin.rpc.cousumer.handler.BatchPacker;
+import Yin.rpc.cousumer.handler.FlushCoalescer;
 import Yin.rpc.cousumer.handler.SimpleClientHandler;
 import Yin.rpc.cousumer.param.ClientRequest;
 import Yin.rpc.cousumer.param.Response;
 import Yin.rpc.cousumer.zk.ServerWatcher;
 import Yin.rpc.cousumer.zk.ZooKeeperFactory;
 import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelInitializer;
-import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioSocketChannel;
-import io.netty.handler.codec.DelimiterBasedFrameDecoder;
-import io.netty.handler.codec.Delimiters;
-import io.netty.handler.codec.string.StringDecoder;
-import io.netty.handler.codec.string.StringEncoder;
 
 /**
  * NettyClient
@@ -39,19 +39,20 @@ import io.netty.handler.codec.string.StringEncoder;
  * 1. 在启动时通过 Zookeeper 获取所有可用的 Provider 节点（IP + 端口）；
  * 2. 为每个 Provider 创建 Netty 连接（Channel）并交给 ChannelManager 管理；
  * 3. 监听 Zookeeper 节点变化（ServerWatcher），实现服务动态上下线；
- * 4. 提供统一的 send() 方法，用于发送 ClientRequest 请求并接收异步结果。
+ * 4. 提供 send()（同步等待）与 sendAsync()（返回 CompletableFuture）两种发送方式，
+ *    以及 sendBatch() 把一组请求放在一个 BATCH 帧中发出、stream() 发起流式调用。
  *
  * 🔹 背景：
- * - 基于 Netty NIO 实现高性能网络通信；
+ * - 基于 Netty 实现高性能网络通信，Linux 上优先使用 native epoll（见 Transport）；
  * - 使用 Zookeeper 做服务发现和连接监听；
  * - 与上层的 InvokeProxy 动态代理协作，实现透明的远程方法调用。
  *
  * -----------------------------------------------
  * ⚙️ 调用链：
- * InvokeProxy → NettyClient.send(request)
+ * InvokeProxy → NettyClient.sendAsync(request)
  *             → ChannelManager.selectChannel()
- *             → Netty 写出 JSON 请求 → SimpleClientHandler 接收响应
- *             → ResultFuture.get(timeout) 等待返回
+ *             → RpcEncoder 编码为二进制帧写出 → RpcDecoder 解码 → SimpleClientHandler 接收响应
+ *             → ResultFuture 完成（同步调用在 send() 中 get(timeout) 等待返回）
  *
  * @author Taoge
  */
@@ -67,18 +68,22 @@ public class NettyClient {
 		String host = "localhost";
 		int port = 8080;
 		
-		EventLoopGroup work = new NioEventLoopGroup();
+		EventLoopGroup work = Transport.newGroup();
 		try {
-		b.group(work)
-			.channel(NioSocketChannel.class)
-			.option(ChannelOption.SO_KEEPALIVE, true)
+		b.group(work);
+		Transport.configure(b)//epoll/NIO、TCP 参数和分配器，见 Transport
 			.handler(new ChannelInitializer<SocketChannel>() {
 						@Override
 						protected void initChannel(SocketChannel ch) throws Exception {
 							
-							ch.pipeline().addLast(new DelimiterBasedFrameDecoder(Integer.MAX_VALUE, Delimiters.lineDelimiter()[0]));
-							ch.pipeline().addLast(new StringDecoder());//字符串解码器
-							ch.pipeline().addLast(new StringEncoder());//字符串编码器
+							if(FlushCoalescer.ENABLED){
+								ch.pipeline().addLast(new FlushCoalescer());//合并同一轮中的多次 flush
+							}
+							ch.pipeline().addLast(new RpcDecoder());//按头部的bodyLength切帧并解码
+							ch.pipeline().addLast(new RpcEncoder());//二进制帧编码器
+							if(BatchPacker.ENABLED){
+								ch.pipeline().addLast(new BatchPacker());//在编码前把窗口内的并发请求打包成 BATCH 帧
+							}
 							ch.pipeline().addLast(new SimpleClientHandler());//业务逻辑处理处
 						}
 			});
@@ -118,8 +123,8 @@ public class NettyClient {
      *
      * 🔹 执行流程：
      * 1️ 从 ChannelManager 获取一个可用的 Netty Channel；
-     * 2️ 将 ClientRequest 序列化为 JSON 字符串；
-     * 3️ 写入 Channel 并发送到远程 Provider；
+     * 2️ 将 ClientRequest 写入 Channel，由 RpcEncoder 编码为二进制帧；
+     * 3️ 发送到远程 Provider；
      * 4️ 创建一个 ResultFuture 对象等待响应；
      * 5️ 收到响应后由 SimpleClientHandler 唤醒等待线程；
      * 6️ 返回封装好的 Response。
@@ -129,14 +134,124 @@ public class NettyClient {
      */
 	
 	public static Response send(ClientRequest request){
-		f = ChannelManager.get(ChannelManager.position);
-		f.channel().writeAndFlush(JSONObject.toJSONString(request)+"\r\n");
-//		f.channel().writeAndFlush("\r\n");
-		Long timeOut = 60l;
-		ResultFuture future = new ResultFuture(request);
-//		return future.get(timeOut);
-		return future.get(timeOut);
-
+		return sendAsync(request, ResultFuture.SYNC_TIMEOUT).get();//超时由时间轮以超时 Response 完成
+	}
+	
+	/**
+     * sendAsync()
+     * -----------------------------------------------
+     * 🔹 功能：
+     * 发送请求后立即返回，不阻塞调用线程。
+     * 收到响应（或超时）时由 ResultFuture.receive() 完成返回的 Future；
+     * 请求写出失败或所在连接断开时 Future 立即以 44444 结束（幂等请求会先尝试重发）。
+     *
+     * @param request 客户端封装的请求对象
+     * @return 在响应到达时完成的 ResultFuture
+     */
+	public static ResultFuture sendAsync(ClientRequest request){
+		return sendAsync(request, ResultFuture.DEFAULT_TIMEOUT);
+	}
+	
+	/**
+	 * @param timeOut 超时时间（毫秒），到期后 Future 以超时 Response 完成
+	 */
+	public static ResultFuture sendAsync(final ClientRequest request, long timeOut){
+		ResultFuture future = new ResultFuture(request, timeOut);//先登记再写出，避免响应先到找不到Future
+		ChannelFuture channel = ChannelManager.get(ChannelManager.position);
+		write(future, request, channel.channel());
+		return future;
+	}
+	
+	/**
+	 * sendBatch()
+	 * -----------------------------------------------
+	 * 🔹 功能：
+	 * 把一组请求编码成一个 BATCH 帧发到同一个连接，服务端拆开后并行处理，
+	 * 响应仍然逐个返回，分别完成对应的 ResultFuture。
+	 *
+	 * @param requests 一起发出的请求
+	 * @return 与 requests 顺序一致的 ResultFuture
+	 */
+	public static List<ResultFuture> sendBatch(List<ClientRequest> requests){
+		return sendBatch(requests, ResultFuture.DEFAULT_TIMEOUT);
+	}
+	
+	/**
+	 * @param timeOut 每个请求的超时时间（毫秒）
+	 */
+	public static List<ResultFuture> sendBatch(List<ClientRequest> requests, long timeOut){
+		final List<ResultFuture> futures = new ArrayList<ResultFuture>(requests.size());
+		Channel channel = ChannelManager.get(ChannelManager.position).channel();
+		for(ClientRequest request : requests){
+			ResultFuture future = new ResultFuture(request, timeOut);
+			future.bind(channel);
+			futures.add(future);
+		}
+		channel.writeAndFlush(new Batch(requests)).addListener(new ChannelFutureListener() {
+			
+			public void operationComplete(ChannelFuture channelFuture) throws Exception {
+				if(!channelFuture.isSuccess()){
+					for(ResultFuture future : futures){
+						future.fail(Constans.CHANNEL_CLOSED, "请求写出失败:"+channelFuture.cause());
+					}
+				}
+			}
+		});
+		return futures;
+	}
+	
+	/**
+	 * stream()
+	 * -----------------------------------------------
+	 * 🔹 功能：
+	 * 发起流式调用，服务端方法返回 Iterator 时逐个写出元素，
+	 * 返回的 ResultStream 按顺序取用，并按窗口向服务端补充额度。
+	 *
+	 * @param request     客户端封装的请求对象
+	 * @param elementType 元素类型，元素按它反序列化
+	 * @return 按服务端写出顺序返回元素的 ResultStream
+	 */
+	public static <T> ResultStream<T> stream(ClientRequest request, Type elementType){
+		return stream(request, elementType, ResultFuture.DEFAULT_TIMEOUT);
+	}
+	
+	/**
+	 * @param timeOut 整个流的超时时间（毫秒）
+	 */
+	public static <T> ResultStream<T> stream(ClientRequest request, Type elementType, long timeOut){
+		request.setIdempotent(false);//已经收到的元素无法撤回，流式调用不重发
+		ResultFuture future = new ResultFuture(request, timeOut);
+		ResultStream<T> stream = new ResultStream<T>(future, elementType);
+		ChannelFuture channel = ChannelManager.get(ChannelManager.position);
+		write(future, request, channel.channel());
+		stream.credit(ResultStream.WINDOW);//第一个窗口的额度
+		return stream;
+	}
+	
+	/**
+	 * 连接断开后把幂等请求重发到另一个可用连接。
+	 * @return 没有其他可用连接时返回 false
+	 */
+	static boolean reissue(ResultFuture future, ClientRequest request, Channel closed){
+		ChannelFuture channel = ChannelManager.select(closed);
+		if(channel == null){
+			return false;
+		}
+		write(future, request, channel.channel());
+		return true;
+	}
+	
+	//先登记到连接的在途请求表再写出；写出失败按连接断开处理
+	private static void write(final ResultFuture future, ClientRequest request, final Channel channel){
+		future.bind(channel);
+		channel.writeAndFlush(request).addListener(new ChannelFutureListener() {
+			
+			public void operationComplete(ChannelFuture channelFuture) throws Exception {
+				if(!channelFuture.isSuccess()){
+					future.fail(Constans.CHANNEL_CLOSED, "请求写出失败:"+channelFuture.cause());
+				}
+			}
+		});
 	}
 	
 }
@@ -0,0 +1,98 @@
+package Yin.rpc.cousumer.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.netty.util.collection.LongObjectHashMap;
+
+/**
+ * PendingTable 保存所有已发出、尚未收到响应的请求（requestId → ResultFuture）。
+ *
+ * - key 是原始类型 long，基于 Netty 的 LongObjectHashMap（开放寻址），不产生 Long 装箱和链表节点；
+ * - 按 requestId 分成 2^n 个分段，每个分段一把锁，持锁时间只有一次数组探测，
+ *   发送线程与 I/O 线程之间基本没有竞争；
+ * - 登记、移除都是 O(1)，十万级在途请求时每个请求只占用分段数组中的一个槽位。
+ */
+public class PendingTable<V> {
+	private final LongObjectHashMap<V>[] segments;
+	private final int mask;
+
+	public PendingTable() {
+		this(64);
+	}
+
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public PendingTable(int concurrency) {
+		int size = Integer.highestOneBit(Math.max(1, concurrency - 1) << 1);
+		segments = new LongObjectHashMap[size];
+		for(int i=0;i<size;i++){
+			segments[i] = new LongObjectHashMap<V>();
+		}
+		mask = size - 1;
+	}
+
+	private LongObjectHashMap<V> segment(long id) {
+		//requestId 是递增的，混合一下高低位让相邻 id 落到不同分段
+		long h = id * 0x9E3779B97F4A7C15L;
+		return segments[(int) (h >>> 32) & mask];
+	}
+
+	public V put(long id, V value) {
+		LongObjectHashMap<V> segment = segment(id);
+		synchronized (segment) {
+			return segment.put(id, value);
+		}
+	}
+
+	public V get(long id) {
+		LongObjectHashMap<V> segment = segment(id);
+		synchronized (segment) {
+			return segment.get(id);
+		}
+	}
+
+	public V remove(long id) {
+		LongObjectHashMap<V> segment = segment(id);
+		synchronized (segment) {
+			return segment.remove(id);
+		}
+	}
+
+	/**
+	 * 只有当前值就是 value 时才移除，供超时任务使用，避免误删。
+	 */
+	public boolean remove(long id, V value) {
+		LongObjectHashMap<V> segment = segment(id);
+		synchronized (segment) {
+			if(segment.get(id) != value){
+				return false;
+			}
+			segment.remove(id);
+			return true;
+		}
+	}
+
+	/**
+	 * 移除并返回全部请求，连接断开时使用。
+	 */
+	public List<V> drain() {
+		List<V> values = new ArrayList<V>();
+		for(LongObjectHashMap<V> segment : segments){
+			synchronized (segment) {
+				values.addAll(segment.values());
+				segment.clear();
+			}
+		}
+		return values;
+	}
+
+	public int size() {
+		int size = 0;
+		for(LongObjectHashMap<V> segment : segments){
+			synchronized (segment) {
+				size += segment.size();
+			}
+		}
+		return size;
+	}
+}
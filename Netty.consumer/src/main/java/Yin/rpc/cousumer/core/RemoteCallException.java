@@ -0,0 +1,19 @@
+package Yin.rpc.cousumer.core;
+
+/**
+ * 远程调用返回失败的 Response（code 不是 00000）时，
+ * 异步调用的 Future 以该异常结束，code / msg 与 Response 一致。
+ */
+public class RemoteCallException extends RuntimeException {
+	private static final long serialVersionUID = 1L;
+	private final String code;
+
+	public RemoteCallException(String code, String msg) {
+		super(code + ":" + msg);
+		this.code = code;
+	}
+
+	public String getCode() {
+		return code;
+	}
+}
@@ -1,200 +1,290 @@
 package Yin.rpc.cousumer.core;
 
-import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.Condition;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.TimeoutException;
 
+import Yin.rpc.cousumer.codec.Cancel;
+import Yin.rpc.cousumer.constans.Constans;
 import Yin.rpc.cousumer.param.ClientRequest;
 import Yin.rpc.cousumer.param.Response;
+import io.netty.channel.Channel;
+import io.netty.util.AttributeKey;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.TimerTask;
+import io.netty.util.concurrent.DefaultThreadFactory;
 
 /**
  * ResultFuture
  * -----------------------------------------------
  * 🔹 作用：
- * 这是 RPC 客户端用于实现 **异步转同步调用机制** 的核心类。
- * 当客户端通过 Netty 发送一个请求后，会立即创建对应的 ResultFuture 对象，
- * 并将其放入全局静态 Map（以 requestId 为键）。  
+ * 这是 RPC 客户端等待响应的核心类，本身就是一个 CompletableFuture&lt;Response&gt;。
+ * 当客户端通过 Netty 发送一个请求前，会先创建对应的 ResultFuture 对象，
+ * 登记到全局的 PendingTable（以 requestId 为键），并在时间轮上挂一个超时任务。
  * 当服务端返回响应时，由客户端的 Handler 调用 receive() 方法，
- * 找到对应的 Future，设置响应结果并唤醒等待线程。
+ * 找到对应的 Future 并 complete，同步等待的线程被唤醒，异步回调被触发。
  *
  * 🔹 核心机制：
- * - 客户端发送请求 → 创建 ResultFuture → 阻塞等待结果；
- * - 服务端返回响应 → receive() 唤醒对应 Future；
- * - 超时未返回 → ClearFutureThread 定期清理并返回超时结果。
+ * - 同步调用：send() → get(timeout) 阻塞等待；
+ * - 异步调用：sendAsync() 直接返回 Future，不占用任何等待线程；
+ * - 服务端返回响应 → receive() 从 PendingTable 移除并完成 Future，同时取消超时任务；
+ * - 超时未返回 → 时间轮到期后移除并以超时 Response（33333）完成 Future；
+ * - 超时或调用方 cancel() → 向请求所在的连接写出 CANCEL 帧，服务端丢弃或中断该请求；
+ * - 请求所在的连接断开 → channelClosed() 立即以 44444 完成该连接上的全部在途请求，
+ *   @Idempotent 方法则在另一个可用连接上重发一次。
  *
  * -----------------------------------------------
  * ⚙️ 执行流程：
- * InvokeProxy → NettyClient.send(request)
- *             → new ResultFuture(request)
- *             → future.get(timeout) 阻塞等待
- *             → SimpleClientHandler.receive(response) 唤醒线程
- *             → future 返回 Response
+ * InvokeProxy → NettyClient.sendAsync(request)
+ *             → new ResultFuture(request, timeout)
+ *             → 写出请求
+ *             → SimpleClientHandler → receive(response) → complete(response)
+ *             → 同步调用 get(timeout) 返回 / 异步调用触发回调
  *
  * -----------------------------------------------
  * 🔧 技术点：
- * - 使用 ReentrantLock + Condition 控制线程阻塞与唤醒；
- * - 使用 ConcurrentHashMap 存储全局 requestId 与 Future 的映射；
- * - 使用守护线程 ClearFutureThread 定期清理超时请求；
- * - 支持设置超时时间，防止请求永久阻塞。
+ * - 基于 CompletableFuture，等待与唤醒交给 JDK 实现；
+ * - PendingTable 以原始 long 为 key、分段加锁，登记与移除都是 O(1)；
+ * - 超时由 Netty HashedWheelTimer 驱动，挂载和取消都是 O(1)，
+ *   不再需要周期性扫描全部在途请求的清理线程；
+ * - 每个连接通过 IN_FLIGHT 属性持有自己的在途请求表，断线时无需扫描全局表。
  *
  * -----------------------------------------------
  * @author Taoge
  */
 
-public class ResultFuture {
+public class ResultFuture extends CompletableFuture<Response> implements TimerTask {
 
-    /** 存放所有挂起请求的映射表（key = requestId, value = ResultFuture） */
-    public final static ConcurrentHashMap<Long, ResultFuture> map = new ConcurrentHashMap<>();
+    /** 存放所有挂起请求的表（key = requestId, value = ResultFuture） */
+    public final static PendingTable<ResultFuture> pending = new PendingTable<ResultFuture>();
 
-    /** 每个 Future 独立持有的锁对象，用于等待/唤醒 */
-    final Lock lock = new ReentrantLock();
+    /** 每个连接上的在途请求，连接断开时据此立即结束请求 */
+    public final static AttributeKey<PendingTable<ResultFuture>> IN_FLIGHT = AttributeKey.valueOf("rpc.inFlight");
 
-    /** 条件变量，用于在结果未返回前阻塞等待 */
-    private Condition condition = lock.newCondition();
+    /** 超时时间轮：10ms 一格，512 格一圈，守护线程 */
+    private final static Timer timer = new HashedWheelTimer(
+            new DefaultThreadFactory("rpc-timeout", true), 10, TimeUnit.MILLISECONDS, 512);
 
-    /** 服务端返回的响应结果 */
-    private Response response;
+    /** 默认请求超时时间（2 分钟） */
+    public final static long DEFAULT_TIMEOUT = 2 * 60 * 1000L;
 
-    /** 请求超时时间（默认 2 分钟） */
-    private Long timeOut = 2 * 60 * 1000L;
+    /** 同步调用 NettyClient.send() 的超时时间（60 秒），也是随请求发给服务端的剩余时间 */
+    public final static long SYNC_TIMEOUT = 60 * 1000L;
 
-    /** 请求创建时间，用于超时检测 */
-    private Long start = System.currentTimeMillis();
+    private final long id;
+
+    /** 请求超时时间（毫秒） */
+    private final long timeOut;
+
+    /** 请求创建时间 */
+    private final long start = System.currentTimeMillis();
+
+    /** 时间轮上的超时任务，收到响应时取消 */
+    private volatile Timeout timeout;
+
+    /** 请求当前所在的连接 */
+    private volatile Channel channel;
+
+    /** 幂等请求保留原始请求用于重发，非幂等请求为 null */
+    private final ClientRequest retryRequest;
+
+    /** 已重发次数，只在 I/O 线程上修改 */
+    private int reissued;
+
+    public ResultFuture(ClientRequest request) {
+        this(request, DEFAULT_TIMEOUT);
+    }
 
     /**
      * 构造函数：
-     * 创建一个新的 Future 对象，并将其注册到全局 Map。
+     * 创建一个新的 Future 对象，登记到 PendingTable，并在时间轮上挂载超时任务。
+     * 需要在写出请求之前创建，避免响应先于登记到达。
      * @param request 客户端请求对象
+     * @param timeOut 超时时间（毫秒）
      */
-    public ResultFuture(ClientRequest request) {
-        map.put(request.getId(), this);
+    public ResultFuture(ClientRequest request, long timeOut) {
+        this.id = request.getId();
+        this.timeOut = timeOut;
+        this.retryRequest = request.isIdempotent() ? request : null;
+        request.setDeadline(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeOut));//随请求发给服务端
+        pending.put(id, this);
+        this.timeout = timer.newTimeout(this, timeOut, TimeUnit.MILLISECONDS);
+        if (isDone()) {
+            // 挂载超时任务前响应已经到达
+            timeout.cancel();
+        }
     }
 
     /**
      * 阻塞等待结果返回（无超时版本）。
-     * 当前线程会被挂起，直到收到服务端响应。
-     * @return 服务端返回的 Response 对象
+     * 请求超时后由时间轮以超时 Response 完成，因此不会永久阻塞。
+     * @return 服务端返回的 Response 对象，等待失败时返回 null
      */
+    @Override
     public Response get() {
-        lock.lock();
         try {
-            while (!done()) {
-                condition.await(); // 等待唤醒
-            }
+            return super.get();
         } catch (Exception e) {
             e.printStackTrace();
-        } finally {
-            lock.unlock();
-            System.out.println(Thread.currentThread().getName() + " get处释放锁！");
+            return null;
         }
-        return this.response;
     }
 
     /**
      * 阻塞等待结果返回（带超时版本）。
-     * 若超时仍未收到响应，则返回 null 或超时 Response。
+     * 若超时仍未收到响应，则把请求从 PendingTable 移除并返回超时 Response。
      *
      * @param time 超时时间（毫秒）
      * @return 服务端返回的 Response 或超时 Response
      */
     public Response get(Long time) {
-        lock.lock();
         try {
-            while (!done()) {
-                condition.await(time, TimeUnit.MILLISECONDS);
-                if ((System.currentTimeMillis() - start) > time) {
-                    // 请求超时，跳出循环
-                    break;
-                }
-            }
+            return super.get(time, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            expire();
+            return getNow(null);
         } catch (Exception e) {
             e.printStackTrace();
-        } finally {
-            lock.unlock();
+            return null;
         }
-        return this.response;
     }
 
     /**
-     * 服务端响应回调（静态方法）。
-     * 当客户端收到服务端响应时调用，用于唤醒等待的线程。
-     *
-     * @param response 服务端返回的响应对象
+     * 时间轮到期回调：请求仍在途则移除并以超时 Response 完成。
      */
-    public static void receive(Response response) {
-        if (response != null) {
-            ResultFuture future = map.get(response.getId());
-            if (future != null) {
-                Lock lock = future.lock;
-                lock.lock();
-                try {
-                    // 设置响应并唤醒等待线程
-                    future.setResponse(response);
-                    future.condition.signal();
-                    // 从全局 Map 移除已完成的 Future
-                    map.remove(future);
-                } catch (Exception e) {
-                    e.printStackTrace();
-                } finally {
-                    lock.unlock();
-                }
-            }
+    @Override
+    public void run(Timeout timeout) {
+        expire();
+    }
+
+    private void expire() {
+        abort(Constans.TIMEOUT, "链路超时");
+    }
+
+    /**
+     * 以失败 Response 结束仍在途的请求，并通知服务端不再继续处理（例如流式响应出错）。
+     */
+    void abort(String code, String msg) {
+        if (fail(code, msg)) {
+            sendCancel();
         }
     }
 
     /**
-     * 判断是否已完成（收到响应）
+     * 主动取消调用：移出在途请求并通知服务端不再执行。
      */
-    private boolean done() {
-        return this.response != null;
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        if (!pending.remove(id, this)) {
+            return false;
+        }
+        unbind();
+        sendCancel();
+        return super.cancel(mayInterruptIfRunning);
     }
 
-    // Getter / Setter
-    public Long getTimeOut() { return timeOut; }
-    public void setTimeOut(Long timeOut) { this.timeOut = timeOut; }
-    public Long getStart() { return start; }
-    public Response getResponse() { return response; }
-    public void setResponse(Response response) { this.response = response; }
+    //超时后通知服务端，还在排队的请求不必再执行
+    private void sendCancel() {
+        Channel ch = channel;
+        if (ch != null && ch.isActive()) {
+            ch.writeAndFlush(new Cancel(id));
+        }
+    }
 
     /**
-     * ClearFutureThread
-     * -----------------------------------------------
-     * 🔹 作用：
-     * 定时清理超时未返回结果的 Future，防止内存泄漏。
-     * 若发现请求超时，会自动构造一个超时 Response 并调用 receive() 唤醒等待线程。
-     * 
-     * 🔹 运行机制：
-     * - 在类加载时启动为守护线程；
-     * - 周期性扫描 map 中所有未完成的 Future；
-     * - 超时则触发 receive()。
+     * 请求仍在途时移除并以失败 Response 完成。
+     * @return 是否由本次调用完成
      */
-    static class ClearFutureThread extends Thread {
-        @Override
-        public void run() {
-            Set<Long> ids = map.keySet();
-            for (Long id : ids) {
-                ResultFuture f = map.get(id);
-                if (f == null) {
-                    map.remove(f);
-                } else if (f.getTimeOut() < (System.currentTimeMillis() - f.getStart())) {
-                    // 超时处理
-                    Response res = new Response();
-                    res.setId(id);
-                    res.setCode("33333");
-                    res.setMsg("链路超时");
-                    receive(res);
+    boolean fail(String code, String msg) {
+        if (!pending.remove(id, this)) {
+            return false;
+        }
+        unbind();
+        Response res = new Response();
+        res.setId(id);
+        res.setCode(code);
+        res.setMsg(msg);
+        complete(res);
+        return true;
+    }
+
+    /**
+     * 记录请求写到了哪个连接上，登记到该连接的在途请求表。
+     */
+    void bind(Channel channel) {
+        this.channel = channel;
+        PendingTable<ResultFuture> table = channel.attr(IN_FLIGHT).get();
+        if (table == null) {
+            PendingTable<ResultFuture> old = channel.attr(IN_FLIGHT).setIfAbsent(table = new PendingTable<ResultFuture>(8));
+            if (old != null) {
+                table = old;
+            }
+        }
+        table.put(id, this);
+    }
+
+    private void unbind() {
+        Timeout t = timeout;
+        if (t != null) {
+            t.cancel();
+        }
+        Channel ch = channel;
+        if (ch != null) {
+            PendingTable<ResultFuture> table = ch.attr(IN_FLIGHT).get();
+            if (table != null) {
+                table.remove(id, this);
+            }
+        }
+    }
+
+    /**
+     * 连接断开（channelInactive / 异常关闭）时调用：
+     * 该连接上所有还没有收到响应的请求立即结束，不再等待超时；
+     * 幂等请求在其他可用连接上重发一次，重发后仍使用原来的 Future 和超时时间。
+     */
+    public static void channelClosed(Channel channel) {
+        PendingTable<ResultFuture> table = channel.attr(IN_FLIGHT).get();
+        if (table == null) {
+            return;
+        }
+        for (ResultFuture future : table.drain()) {
+            if (future.isDone()) {
+                continue;
+            }
+            if (future.retryRequest != null && future.reissued == 0) {
+                future.reissued++;
+                if (NettyClient.reissue(future, future.retryRequest, channel)) {
+                    continue;
                 }
             }
+            future.fail(Constans.CHANNEL_CLOSED, "连接已断开:" + channel.remoteAddress());
         }
     }
 
-    // 静态代码块：类加载时启动清理守护线程
-    static {
-        ClearFutureThread clearThread = new ClearFutureThread();
-        clearThread.setDaemon(true);
-        clearThread.start();
+    /**
+     * 服务端响应回调（静态方法）。
+     * 当客户端收到服务端响应时调用，从 PendingTable 移除对应的 Future，取消超时任务并完成它。
+     *
+     * @param response 服务端返回的响应对象
+     */
+    public static void receive(Response response) {
+        if (response != null) {
+            ResultFuture future = pending.remove(response.getId());
+            if (future != null) {
+                future.unbind();
+                future.complete(response);
+            }
+        }
     }
+
+    /** 请求当前所在的连接，还没写出时为 null */
+    Channel channel() { return channel; }
+
+    // Getter
+    public long getId() { return id; }
+    public long getTimeOut() { return timeOut; }
+    public long getStart() { return start; }
+    public Response getResponse() { return getNow(null); }
 }
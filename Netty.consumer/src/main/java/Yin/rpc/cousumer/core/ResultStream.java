@@ -0,0 +1,162 @@
+package Yin.rpc.cousumer.core;
+
+import java.lang.reflect.Type;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.BiConsumer;
+
+import Yin.rpc.cousumer.codec.Credit;
+import Yin.rpc.cousumer.codec.StreamChunk;
+import Yin.rpc.cousumer.constans.Constans;
+import Yin.rpc.cousumer.param.Response;
+import Yin.rpc.cousumer.serialize.Serializer;
+import Yin.rpc.cousumer.serialize.SerializerFactory;
+import io.netty.channel.Channel;
+
+/**
+ * ResultStream
+ * -----------------------------------------------
+ * 🔹 作用：
+ * 流式调用（远程接口方法返回 Iterator&lt;T&gt;）在客户端的结果，按服务端写出的顺序逐个返回元素。
+ *
+ * 🔹 流控：
+ * - 发出请求后先给服务端一个窗口（-Drpc.stream.window，默认64个元素）的额度；
+ * - 调用方每取走半个窗口的元素，补充同样多的额度（CREDIT 帧）；
+ * - 因此队列中最多缓存一个窗口的元素，且只保留元素的原始字节，取用时才按 T 反序列化。
+ *
+ * 🔹 结束：
+ * - 服务端写完所有元素后发出普通的 RESPONSE 帧，ResultFuture 完成后 hasNext() 返回 false；
+ * - 失败的响应（包括整个流的超时、连接断开）在 hasNext() 中以 RemoteCallException 抛出；
+ * - 不再需要剩余元素时调用 close()，通过 CANCEL 帧让服务端停止迭代。
+ *
+ * 不是线程安全的，同一时间只应由一个线程迭代。
+ */
+public class ResultStream<T> implements Iterator<T>, AutoCloseable {
+	public static final int WINDOW = Math.max(2, Integer.getInteger("rpc.stream.window", 64));
+
+	/** 进行中的流（key = requestId），STREAM 帧在 I/O 线程上据此找到队列 */
+	private static final PendingTable<ResultStream<?>> streams = new PendingTable<ResultStream<?>>();
+
+	/** 队列中的结束标记，在 ResultFuture 完成时放入 */
+	private static final Object END = new Object();
+
+	private final ResultFuture future;
+	private final Type elementType;
+	private final BlockingQueue<Object> queue = new LinkedBlockingQueue<Object>();
+
+	/** 下一个元素的序号，只在 I/O 线程上访问 */
+	private int expectedSeq;
+
+	//以下只在迭代线程上访问
+	private Object next;
+	private int consumed;
+	private boolean ended;
+
+	/**
+	 * 需要在写出请求之前创建，避免元素先于登记到达。
+	 */
+	ResultStream(ResultFuture future, Type elementType) {
+		this.future = future;
+		this.elementType = elementType;
+		streams.put(future.getId(), this);
+		future.whenComplete(new BiConsumer<Response, Throwable>() {
+
+			public void accept(Response response, Throwable cause) {
+				streams.remove(ResultStream.this.future.getId(), ResultStream.this);
+				queue.add(END);
+			}
+		});
+	}
+
+	/**
+	 * 收到一个 STREAM 帧（I/O 线程），放入对应流的队列。
+	 */
+	public static void receive(StreamChunk chunk) {
+		ResultStream<?> stream = streams.get(chunk.getId());
+		if(stream == null){
+			return;//流已经结束或被关闭
+		}
+		if(chunk.getSeq() != stream.expectedSeq++){
+			//服务端还在等待额度，发出 CANCEL 让它结束任务
+			stream.future.abort(Constans.ERROR, "流式响应序号不连续:" + chunk.getSeq());
+			return;
+		}
+		stream.queue.add(chunk);
+	}
+
+	@Override
+	public boolean hasNext() {
+		if(ended){
+			return false;
+		}
+		if(next == null){
+			try {
+				next = queue.take();//整个流的超时由 ResultFuture 的时间轮保证
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				close();
+				throw new RemoteCallException(Constans.ERROR, "等待流式响应时被中断");
+			}
+		}
+		if(next != END){
+			return true;
+		}
+		ended = true;
+		next = null;
+		if(future.isCancelled()){
+			return false;
+		}
+		Response response = future.getNow(null);
+		if(response != null && !Constans.SUCCESS.equals(response.getCode())){
+			throw new RemoteCallException(response.getCode(), response.getMsg());
+		}
+		return false;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public T next() {
+		if(!hasNext()){
+			throw new NoSuchElementException();
+		}
+		StreamChunk chunk = (StreamChunk) next;
+		next = null;
+		if(++consumed >= WINDOW / 2){
+			credit(consumed);
+			consumed = 0;
+		}
+		Serializer serializer = SerializerFactory.get(chunk.getSerializer());
+		return (T) serializer.deserialize(chunk.getBody(), elementType);
+	}
+
+	//允许服务端再写出 n 个元素
+	void credit(int n) {
+		Channel channel = future.channel();
+		if(channel != null && channel.isActive() && !future.isDone()){
+			channel.writeAndFlush(new Credit(future.getId(), n));
+		}
+	}
+
+	/**
+	 * 放弃剩余元素，还没结束的流通知服务端停止。
+	 */
+	@Override
+	public void close() {
+		if(!future.isDone()){
+			future.cancel(true);
+		}
+		streams.remove(future.getId(), this);
+		queue.clear();
+		ended = true;
+		next = null;
+	}
+
+	/**
+	 * @return 结束这个流的 ResultFuture，完成时 result 为服务端写出的元素个数
+	 */
+	public ResultFuture getFuture() {
+		return future;
+	}
+}
@@ -0,0 +1,83 @@
+package Yin.rpc.cousumer.core;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+/**
+ * Transport 是客户端的传输层配置，全部通过系统属性设置。
+ *
+ * - rpc.transport：auto（默认，Linux 上 native epoll 可用时使用 epoll，否则 NIO）/ epoll / nio；
+ * - rpc.client.threads：I/O 线程数（默认0，即 Netty 默认的 CPU 核数 * 2）；
+ * - rpc.client.connectTimeout：连接超时毫秒数（默认3000）；
+ * - 连接参数：rpc.tcpNoDelay（默认true）、rpc.sendBuffer / rpc.receiveBuffer（字节，默认0 表示使用系统值）；
+ * - ByteBuf 分配器：rpc.allocator = pooled（默认）/ unpooled，rpc.allocator.direct（默认true），
+ *   rpc.allocator.arenas / rpc.allocator.pageSize / rpc.allocator.maxOrder（默认沿用 Netty 的值）。
+ */
+public class Transport {
+	public static final String TYPE = System.getProperty("rpc.transport", "auto");
+	public static final int THREADS = Integer.getInteger("rpc.client.threads", 0);
+	public static final int CONNECT_TIMEOUT = Integer.getInteger("rpc.client.connectTimeout", 3000);
+	public static final boolean TCP_NODELAY = Boolean.parseBoolean(System.getProperty("rpc.tcpNoDelay", "true"));
+	public static final int SEND_BUFFER = Integer.getInteger("rpc.sendBuffer", 0);
+	public static final int RECEIVE_BUFFER = Integer.getInteger("rpc.receiveBuffer", 0);
+	public static final boolean EPOLL = useEpoll();
+
+	private Transport(){}
+
+	private static boolean useEpoll() {
+		if("nio".equalsIgnoreCase(TYPE)){
+			return false;
+		}
+		if("epoll".equalsIgnoreCase(TYPE) && !Epoll.isAvailable()){
+			System.out.println("epoll 不可用，使用 NIO：" + Epoll.unavailabilityCause());
+		}
+		return Epoll.isAvailable();
+	}
+
+	public static EventLoopGroup newGroup() {
+		DefaultThreadFactory threadFactory = new DefaultThreadFactory("rpc-client");
+		return EPOLL ? new EpollEventLoopGroup(THREADS, threadFactory) : new NioEventLoopGroup(THREADS, threadFactory);
+	}
+
+	public static ByteBufAllocator allocator() {
+		boolean direct = Boolean.parseBoolean(System.getProperty("rpc.allocator.direct", "true"));
+		if("unpooled".equalsIgnoreCase(System.getProperty("rpc.allocator", "pooled"))){
+			return new UnpooledByteBufAllocator(direct);
+		}
+		int arenas = Integer.getInteger("rpc.allocator.arenas", 0);
+		int pageSize = Integer.getInteger("rpc.allocator.pageSize", PooledByteBufAllocator.defaultPageSize());
+		int maxOrder = Integer.getInteger("rpc.allocator.maxOrder", PooledByteBufAllocator.defaultMaxOrder());
+		return new PooledByteBufAllocator(direct,
+				arenas > 0 ? arenas : PooledByteBufAllocator.defaultNumHeapArena(),
+				arenas > 0 ? arenas : PooledByteBufAllocator.defaultNumDirectArena(),
+				pageSize, maxOrder);
+	}
+
+	/**
+	 * 按配置设置客户端 Bootstrap 的 channel 类型、连接参数和分配器。
+	 */
+	public static Bootstrap configure(Bootstrap bootstrap) {
+		bootstrap.channel(EPOLL ? EpollSocketChannel.class : NioSocketChannel.class)
+			.option(ChannelOption.ALLOCATOR, allocator())
+			.option(ChannelOption.SO_KEEPALIVE, true)
+			.option(ChannelOption.TCP_NODELAY, TCP_NODELAY)
+			.option(ChannelOption.CONNECT_TIMEOUT_MILLIS, CONNECT_TIMEOUT);
+		if(SEND_BUFFER > 0){
+			bootstrap.option(ChannelOption.SO_SNDBUF, SEND_BUFFER);
+		}
+		if(RECEIVE_BUFFER > 0){
+			bootstrap.option(ChannelOption.SO_RCVBUF, RECEIVE_BUFFER);
+		}
+		return bootstrap;
+	}
+}
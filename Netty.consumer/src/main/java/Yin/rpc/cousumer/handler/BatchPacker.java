@@ -0,0 +1,118 @@
+package Yin.rpc.cousumer.handler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import Yin.rpc.cousumer.codec.Batch;
+import Yin.rpc.cousumer.param.ClientRequest;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+
+/**
+ * BatchPacker 把同一个连接上短时间内并发写出的多个请求打包成一个 BATCH 帧。
+ *
+ * 位于 RpcEncoder 之后（靠近 pipeline 尾部），在编码前拦截 ClientRequest：
+ * - 第一个请求到达后最多等待 -Drpc.batch.windowMicros 微秒，期间到达的请求一起写出；
+ * - 累计请求数达到 -Drpc.batch.maxSize（默认32）时立即写出；
+ * - 窗口内只有一个请求时照常写成 REQUEST 帧；
+ * - 其他消息（CANCEL、心跳等）写出前先把攒着的请求写出，保持与请求之间的先后顺序；
+ * - 攒着请求期间的 flush 被吸收，打包写出时统一 flush。
+ *
+ * 每个请求原来的 promise 在 BATCH 帧写出成功或失败时一起完成，
+ * 写出失败仍由 NettyClient 按连接断开处理。windowMicros 为0（默认）时不加入 pipeline。
+ */
+public class BatchPacker extends ChannelOutboundHandlerAdapter {
+	public static final long WINDOW_MICROS = Long.getLong("rpc.batch.windowMicros", 0);
+	public static final int MAX_SIZE = Integer.getInteger("rpc.batch.maxSize", 32);
+	public static final boolean ENABLED = WINDOW_MICROS > 0;
+
+	//以下状态只在连接的 EventLoop 上访问
+	private ChannelHandlerContext ctx;
+	private List<ClientRequest> requests = new ArrayList<ClientRequest>();
+	private List<ChannelPromise> promises = new ArrayList<ChannelPromise>();
+	private ScheduledFuture<?> delayed;
+	private final Runnable packTask = new Runnable() {
+
+		@Override
+		public void run() {
+			delayed = null;
+			pack();
+		}
+	};
+
+	@Override
+	public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+		this.ctx = ctx;
+	}
+
+	@Override
+	public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+		if(!(msg instanceof ClientRequest)){
+			pack();
+			ctx.write(msg, promise);
+			return;
+		}
+		requests.add((ClientRequest) msg);
+		promises.add(promise);
+		if(requests.size() >= MAX_SIZE){
+			pack();
+		}else if(delayed == null){
+			delayed = ctx.executor().schedule(packTask, WINDOW_MICROS, TimeUnit.MICROSECONDS);
+		}
+	}
+
+	@Override
+	public void flush(ChannelHandlerContext ctx) throws Exception {
+		if(requests.isEmpty()){
+			ctx.flush();
+		}
+	}
+
+	@Override
+	public void close(ChannelHandlerContext ctx, ChannelPromise promise) throws Exception {
+		pack();
+		ctx.close(promise);
+	}
+
+	@Override
+	public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+		pack();
+	}
+
+	private void pack() {
+		if(delayed != null){
+			delayed.cancel(false);
+			delayed = null;
+		}
+		if(requests.isEmpty()){
+			return;
+		}
+		List<ClientRequest> batch = requests;
+		final List<ChannelPromise> batchPromises = promises;
+		requests = new ArrayList<ClientRequest>();
+		promises = new ArrayList<ChannelPromise>();
+		if(batch.size() == 1){
+			ctx.write(batch.get(0), batchPromises.get(0));
+		}else{
+			ctx.write(new Batch(batch)).addListener(new ChannelFutureListener() {
+
+				@Override
+				public void operationComplete(ChannelFuture future) throws Exception {
+					for(ChannelPromise promise : batchPromises){
+						if(future.isSuccess()){
+							promise.trySuccess();
+						}else{
+							promise.tryFailure(future.cause());
+						}
+					}
+				}
+			});
+		}
+		ctx.flush();
+	}
+}
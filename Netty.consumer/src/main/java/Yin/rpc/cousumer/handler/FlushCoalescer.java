@@ -0,0 +1,129 @@
+package Yin.rpc.cousumer.handler;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+
+/**
+ * FlushCoalescer 把同一个连接上的多次 flush 合并成一次，减少系统调用和小 TCP 报文。
+ *
+ * 调用方对每个请求都调用 writeAndFlush，write 照常进入出站缓冲区，flush 在这里被推迟：
+ * - 正在处理读事件时（例如读到响应后在 I/O 线程上发出的下一个请求），等到 channelReadComplete 统一 flush；
+ * - 其他情况下，-Drpc.flush.windowMicros=0（默认）时在 EventLoop 本轮任务之后 flush，
+ *   同一轮中提交到 EventLoop 的写合并为一次；大于0 时最多等待这么多微秒再 flush，用有界的延迟换更大的批量；
+ * - 累计未 flush 的消息数达到 -Drpc.flush.maxMessages（默认64）时立即 flush，关闭连接前也会先 flush。
+ *
+ * -Drpc.flush.enabled=false 时不加入 pipeline。averageMessagesPerFlush() 是平均每次 flush 合并的消息数。
+ */
+public class FlushCoalescer extends ChannelDuplexHandler {
+	public static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("rpc.flush.enabled", "true"));
+	public static final long WINDOW_MICROS = Long.getLong("rpc.flush.windowMicros", 0);
+	public static final int MAX_MESSAGES = Integer.getInteger("rpc.flush.maxMessages", 64);
+
+	private static final LongAdder messages = new LongAdder();
+	private static final LongAdder flushes = new LongAdder();
+
+	//以下状态只在连接的 EventLoop 上访问
+	private ChannelHandlerContext ctx;
+	private boolean reading;
+	private int pending;
+	private boolean scheduled;
+	private ScheduledFuture<?> delayed;
+	private final Runnable flushTask = new Runnable() {
+		
+		@Override
+		public void run() {
+			scheduled = false;
+			delayed = null;
+			if(pending > 0 && !reading){
+				flushNow();
+			}
+		}
+	};
+
+	@Override
+	public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+		this.ctx = ctx;
+	}
+
+	@Override
+	public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+		reading = true;
+		ctx.fireChannelRead(msg);
+	}
+
+	@Override
+	public void channelReadComplete(ChannelHandlerContext ctx) throws Exception {
+		reading = false;
+		if(pending > 0){
+			flushNow();
+		}
+		ctx.fireChannelReadComplete();
+	}
+
+	@Override
+	public void flush(ChannelHandlerContext ctx) throws Exception {
+		if(++pending >= MAX_MESSAGES){
+			flushNow();
+		}else if(!reading && !scheduled){
+			scheduled = true;
+			if(WINDOW_MICROS > 0){
+				delayed = ctx.executor().schedule(flushTask, WINDOW_MICROS, TimeUnit.MICROSECONDS);
+			}else{
+				ctx.executor().execute(flushTask);
+			}
+		}
+	}
+
+	@Override
+	public void close(ChannelHandlerContext ctx, ChannelPromise promise) throws Exception {
+		if(pending > 0){
+			flushNow();
+		}
+		ctx.close(promise);
+	}
+
+	@Override
+	public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+		//出站缓冲区超过高水位，先把攒着的数据写出去
+		if(!ctx.channel().isWritable() && pending > 0){
+			flushNow();
+		}
+		ctx.fireChannelWritabilityChanged();
+	}
+
+	@Override
+	public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+		if(pending > 0){
+			flushNow();
+		}
+	}
+
+	private void flushNow() {
+		if(delayed != null){
+			delayed.cancel(false);
+			delayed = null;
+			scheduled = false;
+		}
+		messages.add(pending);
+		flushes.increment();
+		pending = 0;
+		ctx.flush();
+	}
+
+	/**
+	 * @return 平均每次实际 flush 合并的消息数
+	 */
+	public static double averageMessagesPerFlush() {
+		long count = flushes.sum();
+		return count == 0 ? 0 : (double) messages.sum() / count;
+	}
+
+	public static long flushCount() {
+		return flushes.sum();
+	}
+}
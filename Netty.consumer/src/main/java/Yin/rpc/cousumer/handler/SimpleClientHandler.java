@@ -1,12 +1,16 @@
 package Yin.rpc.cousumer.handler;
 
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 
-import com.alibaba.fastjson.JSON;
-import com.alibaba.fastjson.JSONObject;
-
+import Yin.rpc.cousumer.codec.Handshake;
+import Yin.rpc.cousumer.codec.Heartbeat;
+import Yin.rpc.cousumer.codec.StreamChunk;
+import Yin.rpc.cousumer.core.ChannelManager;
 import Yin.rpc.cousumer.core.ResultFuture;
+import Yin.rpc.cousumer.core.ResultStream;
 import Yin.rpc.cousumer.param.Response;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
@@ -15,22 +19,56 @@ import io.netty.util.AttributeKey;
 
 public class SimpleClientHandler extends ChannelInboundHandlerAdapter implements ChannelHandler {
 	private static final Executor exec = Executors.newFixedThreadPool(10);
+	@Override
+	public void channelActive(ChannelHandlerContext ctx) throws Exception {
+		//连接建立后先拿服务端的方法表，之后请求只带方法id
+		ctx.channel().writeAndFlush(new Handshake(null));
+		super.channelActive(ctx);
+	}
+	
+	@Override
+	public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+		//连接断开：移出连接池，并立即结束这个连接上的在途请求
+		ChannelManager.removeChnannel(ctx.channel());
+		ResultFuture.channelClosed(ctx.channel());
+		super.channelInactive(ctx);
+	}
+	
+	@Override
+	public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+		cause.printStackTrace();
+		ctx.close();//关闭后触发 channelInactive
+	}
+	
 	@Override
 	public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
-		final Object m = msg;
-		if(msg.toString().equals("ping")){
+		if(msg == Heartbeat.PING){
 			System.out.println("收到读写空闲ping,向服务端发送pong");
-			ctx.channel().writeAndFlush("pong\r\n");
+			ctx.channel().writeAndFlush(Heartbeat.PONG);
+			return;
+		}
+		
+		if(msg instanceof Handshake){
+			String[] methods = ((Handshake) msg).getMethods();
+			Map<String, Integer> methodIds = new HashMap<String, Integer>(methods.length * 2);
+			for(int i=0;i<methods.length;i++){
+				methodIds.put(methods[i], i);
+			}
+			ctx.channel().attr(Handshake.METHOD_IDS).set(methodIds);
+			return;
+		}
+		
+		if(msg instanceof StreamChunk){
+			//在 I/O 线程上放入流的队列，保证先于结束流的响应
+			ResultStream.receive((StreamChunk) msg);
+			return;
 		}
 		
-		//设置response
-//		final Response response = JSONObject.parseObject(msg.toString(), Response.class);
-//		System.out.println("SimpleClientHandler中的Response:"+JSONObject.toJSONString(response));
+		//设置response，RpcDecoder已经在I/O线程完成了解码
+		final Response response = (Response) msg;
 		exec.execute(new Runnable() {
 			
 			public void run() {
-				Response response = JSONObject.parseObject(m.toString(), Response.class);
-				System.out.println("SimpleClientHandler中的Response:"+JSONObject.toJSONString(response));
 				ResultFuture.receive(response);				
 			}
 		});
@@ -1,14 +1,46 @@
 package Yin.rpc.cousumer.param;
 
+import java.lang.reflect.Type;
 import java.util.concurrent.atomic.AtomicLong;
 
+import Yin.rpc.cousumer.serialize.SerializerFactory;
+
 public class ClientRequest {
-	private Long id ;
-	private Object content;//方法参数
+	private transient final long id;//放在帧头中传输，发送端用原始 long 登记在途请求
+	private Object[] content;//方法参数，按位置排列，无参方法为空数组
+	private transient Type[] contentTypes;//各参数的声明类型（含泛型），序列化时使用
 	private static AtomicLong realID = new AtomicLong(0);
-	private String command;//media.map里的key
+	private String command;//方法签名，例如 UserRemote.saveUser(User)
+	private transient long deadline;//超时的截止时间（System.nanoTime），0 表示不限；编码时换算成剩余毫秒数发给服务端
+	private transient boolean idempotent;//@Idempotent 方法，连接断开时可以在其他连接上重发
+	private transient byte serializer = SerializerFactory.getDefault().getId();//序列化方式，放在帧头中传输
 	
 	
+	public byte getSerializer() {
+		return serializer;
+	}
+
+	public void setSerializer(byte serializer) {
+		this.serializer = serializer;
+	}
+
+	
+	public long getDeadline() {
+		return deadline;
+	}
+
+	public void setDeadline(long deadline) {
+		this.deadline = deadline;
+	}
+
+	public boolean isIdempotent() {
+		return idempotent;
+	}
+
+	public void setIdempotent(boolean idempotent) {
+		this.idempotent = idempotent;
+	}
+
 	public String getCommand() {
 		return command;
 	}
@@ -21,15 +53,23 @@ public class ClientRequest {
 		id =  realID.incrementAndGet();
 	}
 
-	public Object getContent() {
+	public Object[] getContent() {
 		return content;
 	}
 
-	public void setContent(Object content) {
+	public void setContent(Object... content) {
 		this.content = content;
 	}
 	
-	public Long getId() {
+	public Type[] getContentTypes() {
+		return contentTypes;
+	}
+
+	public void setContentTypes(Type[] contentTypes) {
+		this.contentTypes = contentTypes;
+	}
+	
+	public long getId() {
 		return id;
 	}
 	
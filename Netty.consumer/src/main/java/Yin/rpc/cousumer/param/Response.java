@@ -1,11 +1,19 @@
 package Yin.rpc.cousumer.param;
 
 public class Response {
-	private Long id;
+	private transient long id;//放在帧头中传输
 	private Object result;
 	private String code = "00000";//00000表示成功，其他表示失败
 	private String msg;//失败信息
+	private transient byte serializer;//响应使用的序列化方式，与请求一致
 	
+	public byte getSerializer() {
+		return serializer;
+	}
+	public void setSerializer(byte serializer) {
+		this.serializer = serializer;
+	}
+
 	public String getCode() {
 		return code;
 	}
@@ -18,10 +26,10 @@ public class Response {
 	public void setMsg(String msg) {
 		this.msg = msg;
 	}
-	public Long getId() {
+	public long getId() {
 		return id;
 	}
-	public void setId(Long id) {
+	public void setId(long id) {
 		this.id = id;
 	}
 	public Object getResult() {
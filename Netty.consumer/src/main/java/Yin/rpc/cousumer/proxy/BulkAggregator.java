@@ -0,0 +1,158 @@
+package Yin.rpc.cousumer.proxy;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+import Yin.rpc.cousumer.annotation.BulkMethod;
+import Yin.rpc.cousumer.constans.Constans;
+import Yin.rpc.cousumer.core.NettyClient;
+import Yin.rpc.cousumer.param.ClientRequest;
+import Yin.rpc.cousumer.param.Response;
+import Yin.rpc.cousumer.serialize.Serializer;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+/**
+ * BulkAggregator 把对一个 @BulkMethod 方法的并发调用合并成一次批量调用。
+ *
+ * 每个调用的参数先放入当前批次，并得到一个在批量调用完成时完成的 Future：
+ * - 批次中的第一个调用在定时线程上挂一个 windowMicros 后执行的发送任务；
+ * - 批次凑满 maxSize 个时由调用线程立即发送，并取消定时任务；
+ * - 批量方法成功并返回长度相同的 List 时按位置拆分结果，否则每个调用方得到同一个结果。
+ *
+ * 单个调用方取消自己的 Future 不会取消已经发出的批量调用。
+ */
+public class BulkAggregator {
+	/** 所有批次共用的定时线程，只负责到期发送 */
+	private static final ScheduledExecutorService timer =
+			Executors.newSingleThreadScheduledExecutor(new DefaultThreadFactory("rpc-bulk", true));
+
+	private final RemoteMethod bulk;
+	private final Serializer serializer;
+	private final long windowMicros;
+	private final int maxSize;
+
+	//当前批次，由 this 保护
+	private List<Object> args = new ArrayList<Object>();
+	private List<CompletableFuture<Response>> futures = new ArrayList<CompletableFuture<Response>>();
+	private ScheduledFuture<?> scheduled;
+
+	private final Runnable sendTask = new Runnable() {
+		
+		public void run() {
+			send(null);
+		}
+	};
+
+	public BulkAggregator(Class<?> service, Method method, Serializer serializer) {
+		BulkMethod annotation = method.getAnnotation(BulkMethod.class);
+		if(method.getParameterTypes().length != 1){
+			throw new IllegalArgumentException("@BulkMethod 只能标注在单参数方法上:"+method);
+		}
+		this.bulk = new RemoteMethod(service, bulkMethodOf(service, annotation.value()));
+		this.serializer = serializer;
+		this.windowMicros = annotation.windowMicros();
+		this.maxSize = Math.max(1, annotation.maxSize());
+	}
+
+	private static Method bulkMethodOf(Class<?> service, String name) {
+		for(Method m : service.getMethods()){
+			Class<?>[] types = m.getParameterTypes();
+			if(m.getName().equals(name) && types.length == 1 && types[0].isAssignableFrom(List.class)){
+				return m;
+			}
+		}
+		throw new IllegalArgumentException("找不到批量方法:"+service.getSimpleName()+"."+name+"(List)");
+	}
+
+	/**
+	 * 把一次调用的参数加入当前批次。
+	 * @return 批量调用完成时以这次调用对应的 Response 完成的 Future
+	 */
+	public CompletableFuture<Response> add(Object arg) {
+		CompletableFuture<Response> future = new CompletableFuture<Response>();
+		List<CompletableFuture<Response>> full = null;
+		synchronized (this) {
+			args.add(arg);
+			futures.add(future);
+			if(futures.size() >= maxSize){
+				full = futures;
+			}else if(futures.size() == 1){
+				scheduled = timer.schedule(sendTask, windowMicros, TimeUnit.MICROSECONDS);
+			}
+		}
+		if(full != null){
+			send(full);
+		}
+		return future;
+	}
+
+	//发送当前批次；expected 不为空时只有它仍是当前批次才发送，避免重复发送
+	private void send(List<CompletableFuture<Response>> expected) {
+		List<Object> batchArgs;
+		final List<CompletableFuture<Response>> batchFutures;
+		synchronized (this) {
+			if(futures.isEmpty() || (expected != null && expected != futures)){
+				return;
+			}
+			batchArgs = args;
+			batchFutures = futures;
+			args = new ArrayList<Object>();
+			futures = new ArrayList<CompletableFuture<Response>>();
+			if(scheduled != null){
+				scheduled.cancel(false);
+				scheduled = null;
+			}
+		}
+		ClientRequest request = new ClientRequest();
+		request.setSerializer(serializer.getId());
+		request.setContent(new Object[]{batchArgs});
+		request.setContentTypes(bulk.getParameterTypes());
+		request.setCommand(bulk.getSignature());
+		request.setIdempotent(bulk.isIdempotent());
+		try {
+			call(request).whenComplete(new BiConsumer<Response, Throwable>() {
+				
+				public void accept(Response response, Throwable cause) {
+					split(batchFutures, response, cause);
+				}
+			});
+		} catch (RuntimeException e) {
+			split(batchFutures, null, e);
+		}
+	}
+
+	/**
+	 * 发出批量调用，默认经 NettyClient 异步发送。
+	 */
+	protected CompletableFuture<Response> call(ClientRequest request) {
+		return NettyClient.sendAsync(request);
+	}
+
+	private static void split(List<CompletableFuture<Response>> futures, Response response, Throwable cause) {
+		if(cause != null){
+			for(CompletableFuture<Response> future : futures){
+				future.completeExceptionally(cause);
+			}
+			return;
+		}
+		Object result = response.getResult();
+		boolean perCall = Constans.SUCCESS.equals(response.getCode())
+				&& result instanceof List && ((List<?>) result).size() == futures.size();
+		for(int i=0;i<futures.size();i++){
+			Response single = new Response();
+			single.setId(response.getId());
+			single.setSerializer(response.getSerializer());
+			single.setCode(response.getCode());
+			single.setMsg(response.getMsg());
+			single.setResult(perCall ? ((List<?>) result).get(i) : result);
+			futures.get(i).complete(single);
+		}
+	}
+}
@@ -2,8 +2,13 @@ package Yin.rpc.cousumer.proxy;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
-import java.rmi.Remote;
+import java.lang.reflect.Type;
 import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiConsumer;
 
 import org.springframework.beans.BeansException;
 import org.springframework.beans.factory.config.BeanPostProcessor;
@@ -12,10 +17,19 @@ import org.springframework.cglib.proxy.MethodInterceptor;
 import org.springframework.cglib.proxy.MethodProxy;
 import org.springframework.stereotype.Component;
 
+import com.alibaba.fastjson.parser.ParserConfig;
+import com.alibaba.fastjson.util.TypeUtils;
+
+import Yin.rpc.cousumer.annotation.BulkMethod;
 import Yin.rpc.cousumer.annotation.RemoteInvoke;
+import Yin.rpc.cousumer.constans.Constans;
 import Yin.rpc.cousumer.core.NettyClient;
+import Yin.rpc.cousumer.core.RemoteCallException;
+import Yin.rpc.cousumer.core.ResultFuture;
 import Yin.rpc.cousumer.param.ClientRequest;
 import Yin.rpc.cousumer.param.Response;
+import Yin.rpc.cousumer.serialize.Serializer;
+import Yin.rpc.cousumer.serialize.SerializerFactory;
 
 /**
  * InvokeProxy
@@ -31,9 +45,15 @@ import Yin.rpc.cousumer.param.Response;
  * 3. 使用 CGLIB 的 Enhancer 为该接口创建代理对象（动态代理类）。
  * 4. 当开发者调用这个接口的方法时，代理对象会：
  *      - 拦截方法调用（intercept）
- *      - 封装成 ClientRequest 请求对象（包含方法名和参数）
+ *      - 封装成 ClientRequest 请求对象（包含方法签名和参数）
  *      - 通过 NettyClient 发送到远程服务器
- *      - 等待服务器返回 Response 对象并返回结果
+ *      - 等待服务器返回 Response 对象并返回结果；
+ *        若接口方法声明返回 CompletableFuture&lt;T&gt;，则立即返回 Future，
+ *        响应到达时在响应线程上完成，不阻塞任何线程
+ * 5. 接口方法声明返回 Iterator&lt;T&gt; 时是流式调用，立即返回 ResultStream，
+ *    元素按窗口流控逐个到达，不需要把整个结果一次放进一个 Response；
+ * 6. 标注了 @BulkMethod 的方法不单独发送，由 BulkAggregator 把短时间内的并发调用
+ *    合并成一次批量方法调用，再把结果拆给各个调用方。
  *
  * 🔹 结果：
  * 开发者在代码中看到的是一次普通的接口调用（userRemote.saveUser(user)），
@@ -56,13 +76,21 @@ public class InvokeProxy implements BeanPostProcessor {
 	public Object postProcessAfterInitialization(Object bean, String arg1) throws BeansException {
 		return bean;
 	}
-	//对属性的所有方法和属性类型放入到HashMap中
-	private void putMethodClass(HashMap<Method, Class> methodmap, Field field) {
-		Method[] methods = field.getType().getDeclaredMethods();
+	//对属性的所有方法计算签名和参数类型放入到HashMap中，调用时不再重复反射
+	private void putRemoteMethod(HashMap<Method, RemoteMethod> methodmap, Field field) {
+		Method[] methods = field.getType().getMethods();
 		for(Method method : methods){
-			methodmap.put(method, field.getType());
+			methodmap.put(method, new RemoteMethod(field.getType(), method));
+		}
+	}
+
+	//@BulkMethod 方法各自一个合并器，并发的单个调用合并成一次批量调用
+	private void putBulkMethod(HashMap<Method, BulkAggregator> bulkmap, Field field, Serializer serializer) {
+		for(Method method : field.getType().getMethods()){
+			if(method.isAnnotationPresent(BulkMethod.class)){
+				bulkmap.put(method, new BulkAggregator(field.getType(), method, serializer));
+			}
 		}
-		
 	}
 
 	public Object postProcessBeforeInitialization(Object bean, String arg1) throws BeansException {
@@ -70,19 +98,34 @@ public class InvokeProxy implements BeanPostProcessor {
 		for(Field field : fields){
 			if(field.isAnnotationPresent(RemoteInvoke.class)){
 				field.setAccessible(true);
-				
+				final Serializer serializer = serializerOf(field.getAnnotation(RemoteInvoke.class));
+				final HashMap<Method, RemoteMethod> methodmap = new HashMap<Method, RemoteMethod>();
+				putRemoteMethod(methodmap, field);
+				final HashMap<Method, BulkAggregator> bulkmap = new HashMap<Method, BulkAggregator>();
+				putBulkMethod(bulkmap, field, serializer);
 
 				enhancer.setInterfaces(new Class[]{field.getType()});
 				enhancer.setCallback(new MethodInterceptor() {
 					
 					public Object intercept(Object instance, Method method, Object[] args, MethodProxy proxy) throws Throwable {
+						BulkAggregator aggregator = bulkmap.get(method);
+						if(aggregator != null){
+							return invokeBulk(aggregator, args[0], methodmap.get(method));
+						}
 						ClientRequest clientRequest = new ClientRequest();
-						clientRequest.setContent(args[0]);
-//						String command= methodmap.get(method).getName()+"."+method.getName();
-						String command = method.getName();//修改
-//						System.out.println("InvokeProxy中的Command是:"+command);
-						clientRequest.setCommand(command);
+						clientRequest.setSerializer(serializer.getId());
+						RemoteMethod remoteMethod = methodmap.get(method);
+						clientRequest.setContent(args);//全部参数按位置发送，无参方法为空数组
+						clientRequest.setContentTypes(remoteMethod.getParameterTypes());//按接口声明的泛型类型序列化
+						clientRequest.setCommand(remoteMethod.getSignature());//方法签名，握手后编码器会换成方法id
+						clientRequest.setIdempotent(remoteMethod.isIdempotent());
 						
+						if(remoteMethod.isAsync()){
+							return toResult(NettyClient.sendAsync(clientRequest), remoteMethod.getAsyncType());
+						}
+						if(remoteMethod.isStream()){
+							return NettyClient.stream(clientRequest, remoteMethod.getStreamType());
+						}
 						Response response = NettyClient.send(clientRequest);
 						return response;
 					}
@@ -97,5 +140,69 @@ public class InvokeProxy implements BeanPostProcessor {
 		
 		return bean;
 	}
+	
+	//单个调用的参数交给合并器，同步方法与 NettyClient.send() 一样最多等待 SYNC_TIMEOUT，异步方法按声明类型返回 Future
+	private static Object invokeBulk(BulkAggregator aggregator, Object arg, RemoteMethod remoteMethod) throws Throwable {
+		CompletableFuture<Response> future = aggregator.add(arg);
+		if(remoteMethod.isAsync()){
+			return toResult(future, remoteMethod.getAsyncType());
+		}
+		try {
+			return future.get(ResultFuture.SYNC_TIMEOUT, TimeUnit.MILLISECONDS);
+		} catch (ExecutionException e) {
+			throw e.getCause();
+		} catch (TimeoutException e) {
+			Response response = new Response();
+			response.setCode(Constans.TIMEOUT);
+			response.setMsg("链路超时");
+			return response;
+		}
+	}
+	
+	//把 Response 的 Future 转换成接口声明的 CompletableFuture<T>：T 为 Response 时原样返回，
+	//否则按 T 转换 result，失败的响应以 RemoteCallException 结束；调用方取消返回的 Future 时一并取消请求
+	private static CompletableFuture<Object> toResult(final CompletableFuture<Response> future, final Type type) {
+		final CompletableFuture<Object> result = new CompletableFuture<Object>();
+		future.whenComplete(new BiConsumer<Response, Throwable>() {
+			
+			public void accept(Response response, Throwable cause) {
+				if(cause != null){
+					result.completeExceptionally(cause);
+				}else if(type == Response.class || type == Object.class){
+					result.complete(response);
+				}else if(!Constans.SUCCESS.equals(response.getCode())){
+					result.completeExceptionally(new RemoteCallException(response.getCode(), response.getMsg()));
+				}else{
+					try {
+						result.complete(TypeUtils.cast(response.getResult(), type, ParserConfig.getGlobalInstance()));
+					} catch (RuntimeException e) {
+						result.completeExceptionally(e);
+					}
+				}
+			}
+		});
+		result.whenComplete(new BiConsumer<Object, Throwable>() {
+			
+			public void accept(Object value, Throwable cause) {
+				if(result.isCancelled()){
+					future.cancel(true);
+				}
+			}
+		});
+		return result;
+	}
+	
+	//@RemoteInvoke上指定的序列化方式，没有指定时使用默认值
+	private Serializer serializerOf(RemoteInvoke remoteInvoke) {
+		String name = remoteInvoke.serializer();
+		if(name.isEmpty()){
+			return SerializerFactory.getDefault();
+		}
+		Serializer serializer = SerializerFactory.get(name);
+		if(serializer == null){
+			throw new IllegalArgumentException("未知的序列化方式:"+name);
+		}
+		return serializer;
+	}
 
 }
@@ -0,0 +1,94 @@
+package Yin.rpc.cousumer.proxy;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+
+import Yin.rpc.cousumer.annotation.Idempotent;
+import Yin.rpc.cousumer.core.ResultStream;
+
+/**
+ * RemoteMethod 缓存远程接口方法在调用时需要的元数据，代理生成时计算一次：
+ * - signature      : 方法签名，格式与服务端一致，例如 UserRemote.saveUser(User)；
+ * - parameterTypes : 参数的泛型类型，按位置序列化参数时使用；
+ * - asyncType      : 方法返回 CompletableFuture&lt;T&gt; 时为 T，同步方法为 null；
+ * - idempotent     : 方法上是否有 @Idempotent，连接断开时可以重发；
+ * - streamType     : 方法返回 Iterator&lt;T&gt;（或 ResultStream&lt;T&gt;）时为 T，表示流式调用，否则为 null。
+ */
+public class RemoteMethod {
+	private final String signature;
+	private final Type[] parameterTypes;
+	private final Type asyncType;
+	private final boolean idempotent;
+	private final Type streamType;
+
+	public RemoteMethod(Class<?> service, Method method) {
+		StringBuilder sb = new StringBuilder(service.getSimpleName()).append('.').append(method.getName()).append('(');
+		Class<?>[] types = method.getParameterTypes();
+		for(int i=0;i<types.length;i++){
+			if(i > 0){
+				sb.append(',');
+			}
+			sb.append(types[i].getSimpleName());
+		}
+		this.signature = sb.append(')').toString();
+		this.parameterTypes = method.getGenericParameterTypes();
+		this.asyncType = asyncTypeOf(method);
+		this.idempotent = method.isAnnotationPresent(Idempotent.class);
+		this.streamType = streamTypeOf(method);
+	}
+
+	private static Type streamTypeOf(Method method) {
+		Class<?> returnType = method.getReturnType();
+		if(!Iterator.class.isAssignableFrom(returnType) || !returnType.isAssignableFrom(ResultStream.class)){
+			return null;
+		}
+		return typeArgumentOf(method.getGenericReturnType());
+	}
+
+	private static Type asyncTypeOf(Method method) {
+		if(!CompletableFuture.class.isAssignableFrom(method.getReturnType())){
+			return null;
+		}
+		return typeArgumentOf(method.getGenericReturnType());
+	}
+
+	private static Type typeArgumentOf(Type returnType) {
+		if(returnType instanceof ParameterizedType){
+			Type t = ((ParameterizedType) returnType).getActualTypeArguments()[0];
+			return t instanceof WildcardType ? ((WildcardType) t).getUpperBounds()[0] : t;
+		}
+		return Object.class;
+	}
+
+	public String getSignature() {
+		return signature;
+	}
+
+	public Type[] getParameterTypes() {
+		return parameterTypes;
+	}
+
+	public boolean isAsync() {
+		return asyncType != null;
+	}
+
+	public Type getAsyncType() {
+		return asyncType;
+	}
+
+	public boolean isIdempotent() {
+		return idempotent;
+	}
+
+	public boolean isStream() {
+		return streamType != null;
+	}
+
+	public Type getStreamType() {
+		return streamType;
+	}
+}
@@ -0,0 +1,89 @@
+package Yin.rpc.cousumer.serialize;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import com.alibaba.fastjson.JSON;
+
+import Yin.rpc.cousumer.codec.RpcProtocol;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+
+/**
+ * 基于 fastjson 的序列化实现，可读性好，是默认的序列化方式。
+ */
+public class JsonSerializer implements Serializer {
+
+	@Override
+	public byte getId() {
+		return RpcProtocol.SERIALIZER_JSON;
+	}
+
+	@Override
+	public String getName() {
+		return "json";
+	}
+
+	@Override
+	public byte[] serialize(Object obj, Type type) {
+		return JSON.toJSONBytes(obj);
+	}
+
+	@Override
+	public <T> T deserialize(byte[] bytes, Type type) {
+		return JSON.parseObject(bytes, type);
+	}
+
+	//fastjson 在线程本地的缓冲区中编码，再直接写入 ByteBuf
+	@Override
+	public void serialize(Object obj, Type type, ByteBuf out) {
+		write(obj, out);
+	}
+
+	//堆内 ByteBuf 直接解析底层数组，堆外 ByteBuf 通过 InputStream 读入 fastjson 的线程本地缓冲区
+	@Override
+	public <T> T deserialize(ByteBuf in, Type type) {
+		int length = in.readableBytes();
+		try {
+			if(in.hasArray()){
+				return JSON.parseObject(in.array(), in.arrayOffset() + in.readerIndex(), length, StandardCharsets.UTF_8, type);
+			}
+			return JSON.parseObject(new ByteBufInputStream(in, length), StandardCharsets.UTF_8, type);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		} finally {
+			in.readerIndex(in.writerIndex());
+		}
+	}
+
+	//参数写成 JSON 数组：[arg0, arg1, ...]
+	@Override
+	public byte[] serializeArgs(Object[] args, Type[] types) {
+		return JSON.toJSONBytes(args);
+	}
+
+	@Override
+	public void serializeArgs(Object[] args, Type[] types, ByteBuf out) {
+		write(args, out);
+	}
+
+	@Override
+	public Object[] deserializeArgs(byte[] bytes, Type[] types) {
+		List<Object> args = JSON.parseArray(new String(bytes, StandardCharsets.UTF_8), types);
+		if(args == null || args.size() != types.length){
+			throw new IllegalArgumentException("参数个数不匹配，期望"+types.length+"个");
+		}
+		return args.toArray();
+	}
+
+	private static void write(Object obj, ByteBuf out) {
+		try {
+			JSON.writeJSONString(new ByteBufOutputStream(out), obj);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);//写入 ByteBuf 不会发生
+		}
+	}
+}
@@ -0,0 +1,72 @@
+package Yin.rpc.cousumer.serialize;
+
+import java.lang.reflect.Type;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Serializer 是序列化方式的扩展点（SPI）。
+ *
+ * - 每种实现有一个唯一的 id，随帧头中的 serializer 字段一起传输，
+ *   服务端按请求帧里的 id 反序列化，并用同一种方式编码响应；
+ * - 内置 JSON（fastjson）与紧凑二进制两种实现，由 {@link SerializerFactory} 统一注册；
+ * - 编解码器使用 ByteBuf 版本的方法，直接写入池化的出站 ByteBuf、直接从入站帧读取，
+ *   不经过中间的 byte[]；第三方实现只实现 byte[] 版本时由默认方法转换；
+ * - 第三方实现可以通过 META-INF/services/Yin.rpc.cousumer.serialize.Serializer 以 ServiceLoader 方式加载。
+ */
+public interface Serializer {
+
+	/**
+	 * 帧头中使用的序列化方式 id，取值范围 1~127。
+	 */
+	byte getId();
+
+	/**
+	 * 配置中使用的名字，例如 "json"、"binary"。
+	 */
+	String getName();
+
+	/**
+	 * @param obj  要序列化的对象
+	 * @param type 声明类型，二进制实现据此决定是否可以省略字段名
+	 */
+	byte[] serialize(Object obj, Type type);
+
+	<T> T deserialize(byte[] bytes, Type type);
+
+	/**
+	 * 按位置序列化方法参数，不额外包装成 Map 或 DTO。
+	 *
+	 * @param args  方法参数，无参方法为空数组
+	 * @param types 参数的声明类型（含泛型），与 args 一一对应
+	 */
+	byte[] serializeArgs(Object[] args, Type[] types);
+
+	/**
+	 * 按参数的声明类型依次还原方法参数，参数个数与 types 不一致时抛出 IllegalArgumentException。
+	 */
+	Object[] deserializeArgs(byte[] bytes, Type[] types);
+
+	/**
+	 * 直接序列化到 out 的可写区域，默认经过一次 byte[]。
+	 */
+	default void serialize(Object obj, Type type, ByteBuf out) {
+		out.writeBytes(serialize(obj, type));
+	}
+
+	/**
+	 * 从 in 的可读区域直接反序列化，读完后 in 的可读字节被消费，默认经过一次 byte[]。
+	 */
+	default <T> T deserialize(ByteBuf in, Type type) {
+		byte[] bytes = new byte[in.readableBytes()];
+		in.readBytes(bytes);
+		return deserialize(bytes, type);
+	}
+
+	/**
+	 * 直接把方法参数序列化到 out 的可写区域，默认经过一次 byte[]。
+	 */
+	default void serializeArgs(Object[] args, Type[] types, ByteBuf out) {
+		out.writeBytes(serializeArgs(args, types));
+	}
+}
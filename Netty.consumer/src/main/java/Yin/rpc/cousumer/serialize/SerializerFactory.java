@@ -0,0 +1,62 @@
+package Yin.rpc.cousumer.serialize;
+
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+
+import Yin.rpc.cousumer.codec.RpcProtocol;
+
+/**
+ * SerializerFactory 负责注册和查找 {@link Serializer}。
+ *
+ * - 按 id 查找用于解码（帧头里带的是 id），按名字查找用于配置；
+ * - 默认序列化方式可以通过 -Drpc.serializer=binary 指定，不指定时为 json；
+ * - 启动时通过 ServiceLoader 加载 classpath 中的扩展实现。
+ */
+public class SerializerFactory {
+	public static final String DEFAULT_PROPERTY = "rpc.serializer";
+
+	private static final Serializer[] serializers = new Serializer[128];//下标即id
+	private static final Map<String, Serializer> names = new ConcurrentHashMap<String, Serializer>();
+	private static volatile Serializer defaultSerializer;
+
+	static{
+		register(new JsonSerializer());
+		register(new BinarySerializer());
+		for(Serializer serializer : ServiceLoader.load(Serializer.class)){
+			register(serializer);
+		}
+		defaultSerializer = get(System.getProperty(DEFAULT_PROPERTY, "json"));
+		if(defaultSerializer == null){
+			defaultSerializer = serializers[RpcProtocol.SERIALIZER_JSON];
+		}
+	}
+
+	public static synchronized void register(Serializer serializer) {
+		byte id = serializer.getId();
+		if(id <= 0){
+			throw new IllegalArgumentException("序列化方式id必须大于0:"+serializer.getName());
+		}
+		serializers[id] = serializer;
+		names.put(serializer.getName(), serializer);
+	}
+
+	/**
+	 * @return 对应的序列化方式，不存在时返回null
+	 */
+	public static Serializer get(byte id) {
+		return id <= 0 ? null : serializers[id];
+	}
+
+	public static Serializer get(String name) {
+		return names.get(name);
+	}
+
+	public static Serializer getDefault() {
+		return defaultSerializer;
+	}
+
+	public static void setDefault(Serializer serializer) {
+		defaultSerializer = serializer;
+	}
+}
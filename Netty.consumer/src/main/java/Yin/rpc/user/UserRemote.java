@@ -1,5 +1,6 @@
 package Yin.rpc.user;
 
+import java.util.Iterator;
 import java.util.List;
 
 import Yin.rpc.cousumer.param.Response;
@@ -8,4 +9,5 @@ import Yin.rpc.cousumer.param.Response;
 public interface UserRemote {
 	public Response saveUser(User user);
 	public Response saveUsers(List<User> userlist);
+	public Iterator<User> listUsers(int count);//流式返回，元素按窗口逐个到达
 }
@@ -0,0 +1,119 @@
+package Yin.rpc.cousumer.Yin.consumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import Yin.rpc.cousumer.annotation.BulkMethod;
+import Yin.rpc.cousumer.constans.Constans;
+import Yin.rpc.cousumer.param.ClientRequest;
+import Yin.rpc.cousumer.param.Response;
+import Yin.rpc.cousumer.proxy.BulkAggregator;
+import Yin.rpc.cousumer.serialize.SerializerFactory;
+
+public class BulkAggregatorTest {
+	private final LinkedBlockingQueue<ClientRequest> requests = new LinkedBlockingQueue<ClientRequest>();
+	private final LinkedBlockingQueue<CompletableFuture<Response>> calls = new LinkedBlockingQueue<CompletableFuture<Response>>();
+	
+	interface Api {
+		@BulkMethod(value = "saveAll", windowMicros = 60000000, maxSize = 3)
+		Response save(String name);
+		@BulkMethod(value = "saveAll", windowMicros = 1000, maxSize = 100)
+		Response quickSave(String name);
+		Response saveAll(List<String> names);
+	}
+	
+	//记录发出的批量调用，由测试决定结果
+	private BulkAggregator aggregator(String method) throws Exception {
+		return new BulkAggregator(Api.class, Api.class.getMethod(method, String.class), SerializerFactory.getDefault()) {
+			
+			@Override
+			protected CompletableFuture<Response> call(ClientRequest request) {
+				CompletableFuture<Response> future = new CompletableFuture<Response>();
+				requests.add(request);
+				calls.add(future);
+				return future;
+			}
+		};
+	}
+	
+	private static Response response(String code, Object result) {
+		Response response = new Response();
+		response.setCode(code);
+		response.setResult(result);
+		return response;
+	}
+	
+	@Test
+	public void testMaxSizeAndSplit() throws Exception{
+		BulkAggregator aggregator = aggregator("save");
+		List<CompletableFuture<Response>> futures = new ArrayList<CompletableFuture<Response>>();
+		for(String name : new String[]{"a", "b"}){
+			futures.add(aggregator.add(name));
+		}
+		assertTrue(requests.isEmpty());//窗口很长，没满之前不发送
+		futures.add(aggregator.add("c"));
+		
+		ClientRequest request = requests.poll(1, TimeUnit.SECONDS);
+		assertEquals("Api.saveAll(List)", request.getCommand());
+		assertEquals(Arrays.asList("a", "b", "c"), request.getContent()[0]);
+		assertFalse(futures.get(0).isDone());
+		
+		calls.poll().complete(response(Constans.SUCCESS, Arrays.asList("A", "B", "C")));
+		assertEquals("A", futures.get(0).get().getResult());
+		assertEquals("B", futures.get(1).get().getResult());
+		assertEquals("C", futures.get(2).get().getResult());
+	}
+	
+	@Test
+	public void testWindow() throws Exception{
+		BulkAggregator aggregator = aggregator("quickSave");
+		CompletableFuture<Response> first = aggregator.add("a");
+		CompletableFuture<Response> second = aggregator.add("b");
+		ClientRequest request = requests.poll(5, TimeUnit.SECONDS);//窗口到期后发送
+		assertEquals(Arrays.asList("a", "b"), request.getContent()[0]);
+		assertTrue(requests.isEmpty());
+		
+		//结果长度不一致时每个调用方得到同一个结果
+		calls.poll().complete(response(Constans.SUCCESS, 2));
+		assertEquals(2, first.get().getResult());
+		assertEquals(2, second.get().getResult());
+	}
+	
+	@Test
+	public void testFailure() throws Exception{
+		BulkAggregator aggregator = aggregator("save");
+		CompletableFuture<Response> first = aggregator.add("a");
+		CompletableFuture<Response> second = aggregator.add("b");
+		CompletableFuture<Response> third = aggregator.add("c");
+		requests.poll(1, TimeUnit.SECONDS);
+		calls.poll().complete(response(Constans.ERROR, Arrays.asList("A", "B", "C")));
+		for(CompletableFuture<Response> future : Arrays.asList(first, second, third)){
+			assertEquals(Constans.ERROR, future.get().getCode());
+			assertEquals(Arrays.asList("A", "B", "C"), future.get().getResult());
+		}
+		
+		CompletableFuture<Response> failed = aggregator.add("d");
+		aggregator.add("e");
+		aggregator.add("f");
+		requests.poll(1, TimeUnit.SECONDS);
+		calls.poll().completeExceptionally(new IllegalStateException("no channel"));
+		try {
+			failed.get();
+			fail("批量调用失败时调用方应以同一个异常结束");
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof IllegalStateException);
+		}
+	}
+}
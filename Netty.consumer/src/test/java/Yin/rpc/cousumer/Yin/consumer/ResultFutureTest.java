@@ -0,0 +1,51 @@
+package Yin.rpc.cousumer.Yin.consumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import Yin.rpc.cousumer.constans.Constans;
+import Yin.rpc.cousumer.core.ResultFuture;
+import Yin.rpc.cousumer.param.ClientRequest;
+import Yin.rpc.cousumer.param.Response;
+
+public class ResultFutureTest {
+
+	@Test
+	public void testReceive(){
+		int before = ResultFuture.pending.size();
+		ResultFuture[] futures = new ResultFuture[100000];
+		for(int i=0;i<futures.length;i++){
+			futures[i] = new ResultFuture(new ClientRequest());
+		}
+		assertEquals(before + futures.length, ResultFuture.pending.size());
+		
+		for(ResultFuture future : futures){
+			Response response = new Response();
+			response.setId(future.getId());
+			ResultFuture.receive(response);
+			assertTrue(future.isDone());
+			assertEquals(future.getId(), future.getResponse().getId());
+		}
+		assertEquals(before, ResultFuture.pending.size());
+	}
+	
+	@Test
+	public void testTimeout() throws Exception{
+		ClientRequest request = new ClientRequest();
+		ResultFuture future = new ResultFuture(request, 50);
+		Response response = future.get(5, TimeUnit.SECONDS);
+		assertEquals(Constans.TIMEOUT, response.getCode());
+		assertEquals(null, ResultFuture.pending.get(request.getId()));
+		
+		//超时之后到达的响应直接丢弃
+		Response late = new Response();
+		late.setId(request.getId());
+		ResultFuture.receive(late);
+		assertSame(response, future.getResponse());
+	}
+}
@@ -0,0 +1,99 @@
+package Yin.rpc.cousumer.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import Yin.rpc.cousumer.codec.Cancel;
+import Yin.rpc.cousumer.codec.Credit;
+import Yin.rpc.cousumer.codec.StreamChunk;
+import Yin.rpc.cousumer.constans.Constans;
+import Yin.rpc.cousumer.param.ClientRequest;
+import Yin.rpc.cousumer.param.Response;
+import Yin.rpc.cousumer.serialize.Serializer;
+import Yin.rpc.cousumer.serialize.SerializerFactory;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+
+public class ResultStreamTest {
+	private final Serializer serializer = SerializerFactory.getDefault();
+	private final EmbeddedChannel channel = new EmbeddedChannel(new ChannelInboundHandlerAdapter());
+
+	@Test
+	public void testCreditAndEnd(){
+		ResultStream<Integer> stream = stream();
+		long id = stream.getFuture().getId();
+		for(int i=0;i<ResultStream.WINDOW;i++){
+			ResultStream.receive(chunk(id, i));
+		}
+		for(int i=0;i<ResultStream.WINDOW/2;i++){
+			assertNull(channel.readOutbound());//取走半个窗口之后才补充额度
+			assertEquals(Integer.valueOf(i), stream.next());
+		}
+		Credit credit = channel.readOutbound();
+		assertEquals(id, credit.getId());
+		assertEquals(ResultStream.WINDOW/2, credit.getCredits());
+
+		Response end = new Response();
+		end.setId(id);
+		end.setCode(Constans.SUCCESS);
+		end.setResult(ResultStream.WINDOW);
+		ResultFuture.receive(end);
+		for(int i=ResultStream.WINDOW/2;i<ResultStream.WINDOW;i++){
+			assertTrue(stream.hasNext());//结束响应之前到达的元素照常取用
+			assertEquals(Integer.valueOf(i), stream.next());
+		}
+		assertFalse(stream.hasNext());
+	}
+
+	@Test
+	public void testSeqGap(){
+		ResultStream<Integer> stream = stream();
+		long id = stream.getFuture().getId();
+		ResultStream.receive(chunk(id, 0));
+		ResultStream.receive(chunk(id, 2));
+		Cancel cancel = channel.readOutbound();//通知服务端停止这个流
+		assertEquals(id, cancel.getId());
+		assertNull(channel.readOutbound());
+		assertEquals(Integer.valueOf(0), stream.next());
+		try {
+			stream.hasNext();
+			fail("序号不连续时应当抛出 RemoteCallException");
+		} catch (RemoteCallException e) {
+			assertEquals(Constans.ERROR, e.getCode());
+		}
+		assertFalse(stream.hasNext());
+	}
+
+	@Test
+	public void testClose(){
+		ResultStream<Integer> stream = stream();
+		long id = stream.getFuture().getId();
+		ResultStream.receive(chunk(id, 0));
+		stream.close();
+		Cancel cancel = channel.readOutbound();
+		assertEquals(id, cancel.getId());
+		assertTrue(stream.getFuture().isCancelled());
+		assertFalse(stream.hasNext());
+
+		ResultStream.receive(chunk(id, 1));//关闭之后到达的元素直接丢弃
+		assertFalse(stream.hasNext());
+		assertNull(channel.readOutbound());
+	}
+
+	//与 NettyClient.stream 相同的顺序创建，但不写出请求，也不发出第一个窗口的额度
+	private ResultStream<Integer> stream(){
+		ResultFuture future = new ResultFuture(new ClientRequest());
+		ResultStream<Integer> stream = new ResultStream<Integer>(future, Integer.class);
+		future.bind(channel);
+		return stream;
+	}
+
+	private StreamChunk chunk(long id, int seq){
+		return new StreamChunk(id, serializer.getId(), seq, serializer.serialize(seq, Integer.class));
+	}
+}
@@ -1,5 +1,6 @@
 package Remote;
 
+import java.util.Iterator;
 import java.util.List;
 
 import model.Response;
@@ -8,4 +9,5 @@ import model.User;
 public interface UserRemote {
 	public Response saveUser(User user);
 	public Response saveUsers(List<User> userlist);
+	public Iterator<User> listUsers(int count);
 }
@@ -1,5 +1,6 @@
 package Remote;
 
+import java.util.Iterator;
 import java.util.List;
 
 import javax.annotation.Resource;
@@ -29,4 +30,22 @@ public class UserRemoteImpl implements UserRemote{
 		
 		return response;
 	}
+	
+	//流式响应：按客户端的额度逐个生成，不需要先把全部 User 放进一个 List
+	public Iterator<User> listUsers(final int count){
+		return new Iterator<User>() {
+			private int next;
+			
+			public boolean hasNext() {
+				return next < count;
+			}
+			
+			public User next() {
+				User user = new User();
+				user.setId(next);
+				user.setName("user"+next++);
+				return user;
+			}
+		};
+	}
 }
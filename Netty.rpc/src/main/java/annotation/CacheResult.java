@@ -0,0 +1,29 @@
+package annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 标注在 @Remote 服务的实现方法上，在服务端缓存该方法的响应，见 medium.ResponseCache。
+ *
+ * 只适用于幂等、结果可以短时间复用的读方法：相同参数的请求在 ttl 内直接返回缓存的响应字节，
+ * 不再调用方法、也不再序列化。只缓存成功的响应。
+ */
+@Target({ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface CacheResult {
+	
+	/**
+	 * 缓存有效期（毫秒）
+	 */
+	long ttl() default 1000;
+	
+	/**
+	 * 最多缓存的响应数，超出时淘汰最久未使用的
+	 */
+	int maxSize() default 1024;
+}
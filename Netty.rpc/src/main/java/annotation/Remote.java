@@ -14,4 +14,31 @@ import org.springframework.stereotype.Component;
 @Component
 public @interface Remote {
 	String value() default "";
+	
+	/**
+	 * 业务线程数，大于0时该服务（标注在类上）或该方法（标注在实现方法上）独占一个线程池，
+	 * 0 表示使用默认线程池，见 dispatch.ServerExecutors
+	 */
+	int threads() default 0;
+	
+	/**
+	 * 独占线程池的队列长度，队列满时立即返回过载响应，0 表示使用 rpc.executor.queues
+	 */
+	int queues() default 0;
+	
+	/**
+	 * 为每个请求启动一个虚拟线程执行（JDK 21 以下退化为按需创建线程），适合阻塞型服务
+	 */
+	boolean virtual() default false;
+	
+	/**
+	 * virtual 模式下同时执行的最大请求数，0 表示使用 rpc.executor.maxConcurrency
+	 */
+	int maxConcurrency() default 0;
+	
+	/**
+	 * 直接在 Netty I/O 线程上执行，不切换到业务线程池。
+	 * 只适用于纯内存、不阻塞、耗时极短的方法，阻塞会卡住同一 EventLoop 上的所有连接
+	 */
+	boolean inline() default false;
 }
@@ -8,20 +8,17 @@ import org.springframework.context.ApplicationListener;
 import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.stereotype.Component;
 
+import codec.RpcDecoder;
+import codec.RpcEncoder;
 import constants.Constans;
 import factory.ZooKeeperFactory;
+import handler.FlushCoalescer;
 import handler.ServerHandler;
 import io.netty.bootstrap.ServerBootstrap;
-import io.netty.channel.ChannelFuture;
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelInitializer;
-import io.netty.channel.ChannelOption;
-import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.EventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
-import io.netty.handler.codec.DelimiterBasedFrameDecoder;
-import io.netty.handler.codec.Delimiters;
-import io.netty.handler.codec.string.StringDecoder;
-import io.netty.handler.codec.string.StringEncoder;
 
 /**
  * NettyInitial
@@ -32,7 +29,7 @@ import io.netty.handler.codec.string.StringEncoder;
  * 建立与客户端的通信通道，并将当前服务节点注册到 Zookeeper。
  *
  * 🔹 核心职责：
- * 1️ 启动 Netty Server，监听指定端口（默认 8080）；
+ * 1️ 启动 Netty Server，监听指定端口（默认 8080，-Drpc.server.port）；
  * 2️ 初始化通信管道 Pipeline（解码、编码、业务处理）；
  * 3️ 向 Zookeeper 注册当前服务节点（用于服务发现）；
  * 4️ 在 Spring 启动完成后自动执行（通过 ApplicationListener 机制）；
@@ -49,8 +46,10 @@ import io.netty.handler.codec.string.StringEncoder;
  *
  * -----------------------------------------------
  * 🔧 技术实现：
- * - 使用 Netty 的 NIO 事件模型（Boss/Worker 线程组）
- * - 使用 ChannelInitializer 配置管道（Decoder → Handler → Encoder）
+ * - 使用 Netty 的 Boss/Worker 线程组，Linux 上优先使用 native epoll，否则 NIO；
+ *   线程数、TCP 参数和 ByteBuf 分配器见 Transport；epoll 下可以用 SO_REUSEPORT 绑定多个监听 socket
+ * - 使用 ChannelInitializer 配置管道（FlushCoalescer → RpcDecoder → RpcEncoder → ServerHandler），
+ *   通过定长头部 + bodyLength 的二进制帧解决粘包/拆包
  * - 使用 CuratorFramework 与 Zookeeper 交互
  * - 使用临时顺序节点 (EPHEMERAL_SEQUENTIAL) 注册服务地址
  * - 与 ServerHandler 协同处理具体业务逻辑
@@ -65,37 +64,37 @@ public class NettyInitial implements ApplicationListener<ContextRefreshedEvent>
 	
 	/**
      * 启动 Netty Server：
-     * - 初始化 Boss/Worker 线程组；
-     * - 设置 TCP 参数；
+     * - 初始化 Boss/Worker 线程组（epoll 或 NIO）；
+     * - 设置 TCP 参数和分配器；
      * - 配置通道处理器；
      * - 绑定端口并监听；
      * - 注册当前服务节点到 Zookeeper。
      */
 	public void start() {		
-		NioEventLoopGroup boss = new NioEventLoopGroup();
-		NioEventLoopGroup work = new NioEventLoopGroup();
+		EventLoopGroup boss = Transport.newGroup(Transport.bossThreads(), "rpc-boss");
+		EventLoopGroup work = Transport.newGroup(Transport.WORKER_THREADS, "rpc-worker");
 			
 		try {//启动辅助
 			ServerBootstrap serverBootstrap = new ServerBootstrap();
-			serverBootstrap.group(boss, work)
-				   .option(ChannelOption.SO_BACKLOG, 128)//设置TCP队列大小:包含已连接+未连接
-				   .option(ChannelOption.SO_KEEPALIVE, false)//不使用默认的心跳机制
-				   .channel(NioServerSocketChannel.class)
+			serverBootstrap.group(boss, work);
+			Transport.configure(serverBootstrap)//epoll/NIO、TCP 参数和分配器，见 Transport
 				   .childHandler(new ChannelInitializer<SocketChannel>() {
 
 					@Override
 					protected void initChannel(SocketChannel ch) throws Exception {
-						// 设置\r\n为分隔符
-						ch.pipeline().addLast(new DelimiterBasedFrameDecoder(Integer.MAX_VALUE, Delimiters.lineDelimiter()[0]));
-						ch.pipeline().addLast(new StringDecoder());//字符串解码器
+						if(FlushCoalescer.ENABLED){
+							ch.pipeline().addLast(new FlushCoalescer());//合并同一轮中的多次 flush
+						}
+						ch.pipeline().addLast(new RpcDecoder());//按头部的bodyLength切帧并解码
+						ch.pipeline().addLast(new RpcEncoder());//二进制帧编码器
 //						ch.pipeline().addLast(new IdleStateHandler(20, 15, 10, TimeUnit.SECONDS));
 						ch.pipeline().addLast(new ServerHandler());//业务逻辑处理处
-						ch.pipeline().addLast(new StringEncoder());//字符串编码器
 					}
 				   });
 	
-			int port = 8080;
-			ChannelFuture f = serverBootstrap.bind(8080).sync();
+			int port = Transport.PORT;
+			Channel[] channels = Transport.bind(serverBootstrap, port);//rpc.server.acceptors > 1 时以 SO_REUSEPORT 绑定多个
+			System.out.println("监听端口 " + port + (Transport.EPOLL ? " (epoll)" : " (nio)") + " acceptors=" + channels.length);
 		
 			
 			// 注册到zk
@@ -109,7 +108,9 @@ public class NettyInitial implements ApplicationListener<ContextRefreshedEvent>
 
 			}
 		
-			f.channel().closeFuture().sync();
+			for(Channel channel : channels){
+				channel.closeFuture().sync();
+			}
 		
 			System.out.println("Closed");
 		} catch (Exception e) {
@@ -0,0 +1,134 @@
+package bean;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+/**
+ * Transport 是服务端的传输层配置，全部通过系统属性设置，按机器规格调整而不改代码。
+ *
+ * - rpc.transport：auto（默认，Linux 上 native epoll 可用时使用 epoll，否则 NIO）/ epoll / nio；
+ * - rpc.server.port（默认8080）、rpc.server.backlog（默认128）；
+ * - rpc.server.bossThreads（默认1）、rpc.server.workerThreads（默认0，即 Netty 默认的 CPU 核数 * 2）；
+ * - 连接参数：rpc.tcpNoDelay（默认true）、rpc.sendBuffer / rpc.receiveBuffer（字节，默认0 表示使用系统值）；
+ * - ByteBuf 分配器：rpc.allocator = pooled（默认）/ unpooled，rpc.allocator.direct（默认true，优先堆外内存），
+ *   rpc.allocator.arenas（堆内/堆外 arena 数，默认0 表示 Netty 默认值）、rpc.allocator.pageSize、
+ *   rpc.allocator.maxOrder（chunk 大小为 pageSize << maxOrder，默认沿用 Netty 的 8192 与 11）。
+ *
+ * - rpc.server.acceptors（默认1）：大于1 且使用 epoll 时，以 SO_REUSEPORT 在同一端口上绑定多个监听 socket，
+ *   每个 socket 由各自的 boss 线程 accept，由内核把新连接分散到各个 socket 上，
+ *   所有消费者同时重连（例如 ZooKeeper 会话恢复后）时 accept 不再集中在一个线程上；NIO 下始终只绑定一个。
+ *
+ * epoll 的 native 库随 netty-all 一起打包，非 Linux 或加载失败时 Epoll.isAvailable() 为 false，自动退回 NIO。
+ */
+public class Transport {
+	public static final String TYPE = System.getProperty("rpc.transport", "auto");
+	public static final int PORT = Integer.getInteger("rpc.server.port", 8080);
+	public static final int BACKLOG = Integer.getInteger("rpc.server.backlog", 128);
+	public static final int BOSS_THREADS = Integer.getInteger("rpc.server.bossThreads", 1);
+	public static final int ACCEPTORS = Integer.getInteger("rpc.server.acceptors", 1);
+	public static final int WORKER_THREADS = Integer.getInteger("rpc.server.workerThreads", 0);
+	public static final boolean TCP_NODELAY = Boolean.parseBoolean(System.getProperty("rpc.tcpNoDelay", "true"));
+	public static final int SEND_BUFFER = Integer.getInteger("rpc.sendBuffer", 0);
+	public static final int RECEIVE_BUFFER = Integer.getInteger("rpc.receiveBuffer", 0);
+	public static final boolean EPOLL = useEpoll();
+
+	private Transport(){}
+
+	private static boolean useEpoll() {
+		if("nio".equalsIgnoreCase(TYPE)){
+			return false;
+		}
+		if("epoll".equalsIgnoreCase(TYPE) && !Epoll.isAvailable()){
+			System.out.println("epoll 不可用，使用 NIO：" + Epoll.unavailabilityCause());
+		}
+		return Epoll.isAvailable();
+	}
+
+	/**
+	 * @return 实际绑定的监听 socket 数，只有 epoll 支持 SO_REUSEPORT
+	 */
+	public static int acceptors() {
+		return EPOLL ? Math.max(1, ACCEPTORS) : 1;
+	}
+
+	/**
+	 * @return boss 线程数，至少每个监听 socket 一个
+	 */
+	public static int bossThreads() {
+		return Math.max(BOSS_THREADS, acceptors());
+	}
+
+	public static EventLoopGroup newGroup(int threads, String name) {
+		DefaultThreadFactory threadFactory = new DefaultThreadFactory(name);
+		return EPOLL ? new EpollEventLoopGroup(threads, threadFactory) : new NioEventLoopGroup(threads, threadFactory);
+	}
+
+	public static Class<? extends ServerChannel> serverChannel() {
+		return EPOLL ? EpollServerSocketChannel.class : NioServerSocketChannel.class;
+	}
+
+	public static ByteBufAllocator allocator() {
+		boolean direct = Boolean.parseBoolean(System.getProperty("rpc.allocator.direct", "true"));
+		if("unpooled".equalsIgnoreCase(System.getProperty("rpc.allocator", "pooled"))){
+			return new UnpooledByteBufAllocator(direct);
+		}
+		int arenas = Integer.getInteger("rpc.allocator.arenas", 0);
+		int pageSize = Integer.getInteger("rpc.allocator.pageSize", PooledByteBufAllocator.defaultPageSize());
+		int maxOrder = Integer.getInteger("rpc.allocator.maxOrder", PooledByteBufAllocator.defaultMaxOrder());
+		return new PooledByteBufAllocator(direct,
+				arenas > 0 ? arenas : PooledByteBufAllocator.defaultNumHeapArena(),
+				arenas > 0 ? arenas : PooledByteBufAllocator.defaultNumDirectArena(),
+				pageSize, maxOrder);
+	}
+
+	/**
+	 * 按配置设置服务端 Bootstrap 的 channel 类型、监听参数、连接参数和分配器。
+	 */
+	public static ServerBootstrap configure(ServerBootstrap bootstrap) {
+		ByteBufAllocator allocator = allocator();
+		bootstrap.channel(serverChannel())
+			.option(ChannelOption.SO_BACKLOG, BACKLOG)//设置TCP队列大小:包含已连接+未连接
+			.option(ChannelOption.SO_REUSEADDR, true)
+			.option(ChannelOption.ALLOCATOR, allocator)
+			.childOption(ChannelOption.ALLOCATOR, allocator)
+			.childOption(ChannelOption.SO_KEEPALIVE, false)//不使用默认的心跳机制
+			.childOption(ChannelOption.TCP_NODELAY, TCP_NODELAY);
+		if(acceptors() > 1){
+			bootstrap.option(EpollChannelOption.SO_REUSEPORT, true);
+		}
+		if(SEND_BUFFER > 0){
+			bootstrap.childOption(ChannelOption.SO_SNDBUF, SEND_BUFFER);
+		}
+		if(RECEIVE_BUFFER > 0){
+			bootstrap.childOption(ChannelOption.SO_RCVBUF, RECEIVE_BUFFER);
+		}
+		return bootstrap;
+	}
+
+	/**
+	 * 在端口上绑定 acceptors() 个监听 socket，每次 bind 注册到 boss 线程组中的下一个线程。
+	 */
+	public static Channel[] bind(ServerBootstrap bootstrap, int port) throws InterruptedException {
+		if(ACCEPTORS > 1 && !EPOLL){
+			System.out.println("SO_REUSEPORT 需要 epoll，只绑定一个监听 socket");
+		}
+		Channel[] channels = new Channel[acceptors()];
+		for(int i = 0; i < channels.length; i++){
+			channels[i] = bootstrap.bind(port).sync().channel();
+		}
+		return channels;
+	}
+}
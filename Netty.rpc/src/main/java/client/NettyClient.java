@@ -1,7 +1,7 @@
 package client;
 
-import com.alibaba.fastjson.JSONObject;
-
+import codec.RpcDecoder;
+import codec.RpcEncoder;
 import future.ResultFuture;
 import handler.SimpleClientHandler;
 import io.netty.bootstrap.Bootstrap;
@@ -11,10 +11,6 @@ import io.netty.channel.ChannelInitializer;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.nio.NioSocketChannel;
-import io.netty.handler.codec.DelimiterBasedFrameDecoder;
-import io.netty.handler.codec.Delimiters;
-import io.netty.handler.codec.string.StringDecoder;
-import io.netty.handler.codec.string.StringEncoder;
 import io.netty.util.AttributeKey;
 import model.ClientRequest;
 import model.Response;
@@ -36,9 +32,8 @@ public class NettyClient {
 
 						@Override
 						protected void initChannel(Channel ch) throws Exception {
-							ch.pipeline().addLast(new DelimiterBasedFrameDecoder(Integer.MAX_VALUE, Delimiters.lineDelimiter()[0]));
-							ch.pipeline().addLast(new StringDecoder());//字符串解码器
-							ch.pipeline().addLast(new StringEncoder());//字符串编码器
+							ch.pipeline().addLast(new RpcDecoder());//二进制帧解码器
+							ch.pipeline().addLast(new RpcEncoder());//二进制帧编码器
 							ch.pipeline().addLast(new SimpleClientHandler());//业务逻辑处理处
 						}
 			});
@@ -53,7 +48,7 @@ public class NettyClient {
 	
 	
 	public static Response send(ClientRequest request){
-		f.channel().writeAndFlush(JSONObject.toJSONString(request)+"\r\n");
+		f.channel().writeAndFlush(request);
 		ResultFuture future = new ResultFuture(request);
 		return future.get();
 	}
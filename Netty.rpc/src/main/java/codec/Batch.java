@@ -0,0 +1,19 @@
+package codec;
+
+import model.ServerRequest;
+
+/**
+ * 批量请求，对应 TYPE_BATCH 帧，RpcDecoder 拆出的每个请求与单独的 REQUEST 帧相同。
+ * ServerHandler 把它们逐个分派到各自的业务线程池，响应按 requestId 分别写回。
+ */
+public class Batch {
+	private final ServerRequest[] requests;
+
+	public Batch(ServerRequest[] requests) {
+		this.requests = requests;
+	}
+
+	public ServerRequest[] getRequests() {
+		return requests;
+	}
+}
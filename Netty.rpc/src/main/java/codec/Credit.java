@@ -0,0 +1,24 @@
+package codec;
+
+/**
+ * 流控额度，对应 TYPE_CREDIT 帧，requestId 为流式调用的请求，消息体是新增的额度（元素个数）。
+ * 客户端发出流式请求后先给出一个窗口的额度，之后每消费掉一部分元素再补充，
+ * 服务端写出的元素数不超过累计额度。
+ */
+public class Credit {
+	private final long id;
+	private final int credits;
+
+	public Credit(long id, int credits) {
+		this.id = id;
+		this.credits = credits;
+	}
+
+	public long getId() {
+		return id;
+	}
+
+	public int getCredits() {
+		return credits;
+	}
+}
@@ -0,0 +1,29 @@
+package codec;
+
+/**
+ * EncodedResponse 是已经序列化好的响应体，RpcEncoder 只补上帧头，不再序列化。
+ * 服务端的响应缓存命中时直接写出它。
+ */
+public class EncodedResponse {
+	private final long id;
+	private final byte serializer;
+	private final byte[] body;
+
+	public EncodedResponse(long id, byte serializer, byte[] body) {
+		this.id = id;
+		this.serializer = serializer;
+		this.body = body;
+	}
+
+	public long getId() {
+		return id;
+	}
+
+	public byte getSerializer() {
+		return serializer;
+	}
+
+	public byte[] getBody() {
+		return body;
+	}
+}
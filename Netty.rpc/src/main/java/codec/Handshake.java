@@ -0,0 +1,20 @@
+package codec;
+
+/**
+ * 握手消息，对应 TYPE_HANDSHAKE 帧。
+ *
+ * - 客户端连接建立后发送一个不带方法表的 Handshake；
+ * - 服务端回复带方法表的 Handshake，methods[i] 是方法 id 为 i 的方法签名，
+ *   之后客户端在请求中只需携带 4 字节的方法 id。
+ */
+public class Handshake {
+	private final String[] methods;
+
+	public Handshake(String[] methods) {
+		this.methods = methods;
+	}
+
+	public String[] getMethods() {
+		return methods;
+	}
+}
@@ -0,0 +1,9 @@
+package codec;
+
+/**
+ * 心跳消息，对应协议中没有消息体的 PING/PONG 帧。
+ */
+public enum Heartbeat {
+	PING,
+	PONG
+}
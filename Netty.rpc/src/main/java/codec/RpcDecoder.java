@@ -0,0 +1,142 @@
+package codec;
+
+import java.util.concurrent.TimeUnit;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.CorruptedFrameException;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+import io.netty.util.CharsetUtil;
+import model.Response;
+import model.ServerRequest;
+import serialize.Serializer;
+import serialize.SerializerFactory;
+
+/**
+ * RpcDecoder 负责把入站字节流切分成完整的帧并还原为消息对象。
+ *
+ * 工作流程：
+ * 1. 由父类 LengthFieldBasedFrameDecoder 根据头部的 bodyLength 字段切出一个完整帧（解决粘包/拆包）；
+ * 2. 校验 magic 和 version，不合法的连接直接抛出 CorruptedFrameException；
+ * 3. 根据 type 和 serializer 把消息体还原为 ServerRequest / Batch / Response / Heartbeat，
+ *    requestId 和序列化方式以头部为准；
+ * 4. 请求中的剩余时间换算成本机的截止时间（System.nanoTime），供业务线程跳过已过期的请求；
+ * 5. 请求只解析出方法id（或签名），参数保持为原始字节，由 Medium 找到目标方法后
+ *    按参数的泛型类型一次反序列化，避免先解析成 JSONObject 再转换；
+ * 6. 帧是入站缓冲区的切片，Response 由序列化实现直接从帧中读取，不先拷贝成 byte[]。
+ */
+public class RpcDecoder extends LengthFieldBasedFrameDecoder {
+
+	public RpcDecoder() {
+		super(RpcProtocol.MAX_FRAME_LENGTH, RpcProtocol.LENGTH_FIELD_OFFSET, RpcProtocol.LENGTH_FIELD_LENGTH);
+	}
+
+	@Override
+	protected Object decode(ChannelHandlerContext ctx, ByteBuf in) throws Exception {
+		ByteBuf frame = (ByteBuf) super.decode(ctx, in);
+		if(frame == null){
+			return null;
+		}
+		try {
+			short magic = frame.readShort();
+			if(magic != RpcProtocol.MAGIC){
+				throw new CorruptedFrameException("非法的magic:"+Integer.toHexString(magic & 0xFFFF));
+			}
+			byte version = frame.readByte();
+			if(version != RpcProtocol.VERSION){
+				throw new CorruptedFrameException("不支持的协议版本:"+version);
+			}
+			byte type = frame.readByte();
+			byte serializerId = frame.readByte();
+			long requestId = frame.readLong();
+			frame.readInt();//bodyLength，父类已按它切好帧
+
+			switch (type) {
+			case RpcProtocol.TYPE_REQUEST:
+				return readRequest(frame, serializerId, requestId);
+			case RpcProtocol.TYPE_BATCH:
+				int count = frame.readInt();
+				//先按帧中剩余字节校验请求数，再分配数组
+				if(count < 0 || count > frame.readableBytes() / RpcProtocol.MIN_BATCH_ENTRY_LENGTH){
+					throw new CorruptedFrameException("非法的批量请求数:"+count);
+				}
+				ServerRequest[] requests = new ServerRequest[count];
+				for(int i=0;i<requests.length;i++){
+					byte entrySerializer = frame.readByte();
+					long entryId = frame.readLong();
+					int length = frame.readInt();
+					if(length < 0 || length > frame.readableBytes()){
+						throw new CorruptedFrameException("非法的请求体长度:"+length);
+					}
+					requests[i] = readRequest(frame.readSlice(length), entrySerializer, entryId);
+				}
+				return new Batch(requests);
+			case RpcProtocol.TYPE_RESPONSE:
+				Response response = serializerOf(serializerId).deserialize(frame, Response.class);//直接从帧中读取
+				response.setId(requestId);
+				response.setSerializer(serializerId);
+				return response;
+			case RpcProtocol.TYPE_HANDSHAKE:
+				//只有服务端发送方法表，客户端的握手帧不带内容
+				if(frame.isReadable()){
+					throw new CorruptedFrameException("客户端的握手帧不应携带内容:"+frame.readableBytes());
+				}
+				return new Handshake(null);
+			case RpcProtocol.TYPE_CANCEL:
+				return new Cancel(requestId);
+			case RpcProtocol.TYPE_CREDIT:
+				return new Credit(requestId, frame.readInt());
+			case RpcProtocol.TYPE_PING:
+				return Heartbeat.PING;
+			case RpcProtocol.TYPE_PONG:
+				return Heartbeat.PONG;
+			default:
+				throw new CorruptedFrameException("未知的消息类型:"+type);
+			}
+		} finally {
+			frame.release();
+		}
+	}
+
+	//REQUEST 帧和 BATCH 帧中每个请求的请求体
+	private static ServerRequest readRequest(ByteBuf body, byte serializerId, long requestId) {
+		ServerRequest request = new ServerRequest();
+		request.setId(requestId);
+		request.setSerializer(serializerOf(serializerId).getId());
+		request.setMethodId(body.readInt());
+		int budget = body.readInt();
+		if(budget > 0){
+			//按到达时刻计算截止时间，不依赖两端时钟一致
+			request.setDeadline(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(budget));
+		}
+		if(request.getMethodId() == RpcProtocol.UNKNOWN_METHOD){
+			request.setCommand(readString(body));
+		}
+		request.setContent(readBytes(body));
+		return request;
+	}
+
+	private static String readString(ByteBuf frame) {
+		int length = frame.readUnsignedShort();
+		if(length > frame.readableBytes()){
+			throw new CorruptedFrameException("非法的签名长度:"+length);
+		}
+		String s = frame.toString(frame.readerIndex(), length, CharsetUtil.UTF_8);
+		frame.skipBytes(length);
+		return s;
+	}
+
+	private static byte[] readBytes(ByteBuf frame) {
+		byte[] bytes = new byte[frame.readableBytes()];
+		frame.readBytes(bytes);
+		return bytes;
+	}
+
+	private static Serializer serializerOf(byte id) {
+		Serializer serializer = SerializerFactory.get(id);
+		if(serializer == null){
+			throw new CorruptedFrameException("不支持的序列化方式:"+id);
+		}
+		return serializer;
+	}
+}
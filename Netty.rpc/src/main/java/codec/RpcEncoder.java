@@ -0,0 +1,130 @@
+package codec;
+
+import java.lang.reflect.Type;
+import java.util.Arrays;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.EncoderException;
+import io.netty.handler.codec.MessageToByteEncoder;
+import model.ClientRequest;
+import model.Response;
+import serialize.Serializer;
+import serialize.SerializerFactory;
+
+/**
+ * RpcEncoder 负责把出站消息编码成 {@link RpcProtocol} 定义的二进制帧。
+ *
+ * - Response      → TYPE_RESPONSE（服务端回包）
+ * - EncodedResponse → TYPE_RESPONSE（已序列化的响应体，只写帧头，例如响应缓存命中）
+ * - StreamChunk   → TYPE_STREAM（流式响应中的一个元素）
+ * - ClientRequest → TYPE_REQUEST（客户端发请求）
+ * - Heartbeat     → TYPE_PING / TYPE_PONG（无消息体）
+ * - Handshake     → TYPE_HANDSHAKE（服务端回复方法表）
+ *
+ * 消息体直接序列化进 MessageToByteEncoder 分配的池化 ByteBuf（写完后回填 bodyLength），不经过中间的 byte[]；
+ * 消息体按消息上指定的序列化方式（{@link SerializerFactory}）编码，序列化方式 id 写入帧头。
+ */
+public class RpcEncoder extends MessageToByteEncoder<Object> {
+
+	@Override
+	protected void encode(ChannelHandlerContext ctx, Object msg, ByteBuf out) throws Exception {
+		if(msg instanceof Response){
+			writeResponse(out, (Response) msg);
+		}else if(msg instanceof EncodedResponse){
+			EncodedResponse response = (EncodedResponse) msg;
+			writeHeader(out, RpcProtocol.TYPE_RESPONSE, response.getSerializer(), response.getId(), response.getBody().length);
+			out.writeBytes(response.getBody());
+		}else if(msg instanceof StreamChunk){
+			writeChunk(out, (StreamChunk) msg);
+		}else if(msg instanceof ClientRequest){
+			writeRequest(out, (ClientRequest) msg);
+		}else if(msg instanceof Handshake){
+			writeHandshake(out, (Handshake) msg);
+		}else if(msg == Heartbeat.PING){
+			writeHeader(out, RpcProtocol.TYPE_PING, RpcProtocol.SERIALIZER_JSON, 0L, 0);
+		}else if(msg == Heartbeat.PONG){
+			writeHeader(out, RpcProtocol.TYPE_PONG, RpcProtocol.SERIALIZER_JSON, 0L, 0);
+		}else{
+			throw new EncoderException("不支持的消息类型:"+msg.getClass().getName());
+		}
+	}
+
+	//响应直接序列化进 out，写完后回填帧头中的 bodyLength
+	private static void writeResponse(ByteBuf out, Response response) {
+		Serializer serializer = serializerOf(response.getSerializer());
+		int start = out.writerIndex();
+		writeHeader(out, RpcProtocol.TYPE_RESPONSE, serializer.getId(), idOf(response.getId()), 0);
+		serializer.serialize(response, Response.class, out);
+		out.setInt(start + RpcProtocol.LENGTH_FIELD_OFFSET, out.writerIndex() - start - RpcProtocol.HEADER_LENGTH);
+	}
+
+	//流元素：序号(4) + 按元素类型序列化的元素
+	private static void writeChunk(ByteBuf out, StreamChunk chunk) {
+		Serializer serializer = serializerOf(chunk.getSerializer());
+		int start = out.writerIndex();
+		writeHeader(out, RpcProtocol.TYPE_STREAM, serializer.getId(), chunk.getId(), 0);
+		out.writeInt(chunk.getSeq());
+		serializer.serialize(chunk.getElement(), chunk.getType(), out);
+		out.setInt(start + RpcProtocol.LENGTH_FIELD_OFFSET, out.writerIndex() - start - RpcProtocol.HEADER_LENGTH);
+	}
+
+	//请求体：UNKNOWN_METHOD(4) + NO_DEADLINE(4) + 签名长度(2) + 签名(UTF-8) + 按位置、按声明类型序列化的参数
+	private static void writeRequest(ByteBuf out, ClientRequest request) {
+		Serializer serializer = serializerOf(request.getSerializer());
+		int start = out.writerIndex();
+		writeHeader(out, RpcProtocol.TYPE_REQUEST, serializer.getId(), idOf(request.getId()), 0);
+		out.writeInt(RpcProtocol.UNKNOWN_METHOD);
+		out.writeInt(RpcProtocol.NO_DEADLINE);
+		int lengthIndex = out.writerIndex();
+		out.writeShort(0);
+		out.setShort(lengthIndex, ByteBufUtil.writeUtf8(out, request.getCommand()));
+		writeArgs(out, serializer, request);
+		out.setInt(start + RpcProtocol.LENGTH_FIELD_OFFSET, out.writerIndex() - start - RpcProtocol.HEADER_LENGTH);
+	}
+
+	static void writeArgs(ByteBuf out, Serializer serializer, ClientRequest request) {
+		Object[] args = request.getContent() == null ? new Object[0] : request.getContent();
+		Type[] types = request.getContentTypes();
+		if(types == null){
+			types = new Type[args.length];
+			Arrays.fill(types, Object.class);
+		}
+		serializer.serializeArgs(args, types, out);
+	}
+
+	private static void writeHandshake(ByteBuf out, Handshake handshake) {
+		int start = out.writerIndex();
+		writeHeader(out, RpcProtocol.TYPE_HANDSHAKE, RpcProtocol.SERIALIZER_JSON, 0L, 0);
+		String[] methods = handshake.getMethods();
+		if(methods != null){
+			out.writeInt(methods.length);
+			for(String method : methods){
+				int lengthIndex = out.writerIndex();
+				out.writeShort(0);
+				out.setShort(lengthIndex, ByteBufUtil.writeUtf8(out, method));
+			}
+		}
+		out.setInt(start + RpcProtocol.LENGTH_FIELD_OFFSET, out.writerIndex() - start - RpcProtocol.HEADER_LENGTH);
+	}
+
+	private static Serializer serializerOf(byte id) {
+		Serializer serializer = SerializerFactory.get(id);
+		return serializer == null ? SerializerFactory.getDefault() : serializer;
+	}
+
+	private static void writeHeader(ByteBuf out, byte type, byte serializer, long requestId, int bodyLength) {
+		out.ensureWritable(RpcProtocol.HEADER_LENGTH + bodyLength);
+		out.writeShort(RpcProtocol.MAGIC);
+		out.writeByte(RpcProtocol.VERSION);
+		out.writeByte(type);
+		out.writeByte(serializer);
+		out.writeLong(requestId);
+		out.writeInt(bodyLength);
+	}
+
+	private static long idOf(Long id) {
+		return id == null ? 0L : id;
+	}
+}
@@ -0,0 +1,44 @@
+package codec;
+
+import java.lang.reflect.Type;
+
+/**
+ * 流式响应中的一个元素，对应 TYPE_STREAM 帧。
+ * 元素按方法返回的 Iterator&lt;T&gt; 中的 T 序列化，seq 从0开始连续递增；
+ * 所有元素之后由一个普通的 RESPONSE 帧结束这个流。
+ */
+public class StreamChunk {
+	private final long id;
+	private final byte serializer;
+	private final int seq;
+	private final Object element;
+	private final Type type;
+
+	public StreamChunk(long id, byte serializer, int seq, Object element, Type type) {
+		this.id = id;
+		this.serializer = serializer;
+		this.seq = seq;
+		this.element = element;
+		this.type = type;
+	}
+
+	public long getId() {
+		return id;
+	}
+
+	public byte getSerializer() {
+		return serializer;
+	}
+
+	public int getSeq() {
+		return seq;
+	}
+
+	public Object getElement() {
+		return element;
+	}
+
+	public Type getType() {
+		return type;
+	}
+}
@@ -2,4 +2,9 @@ package constants;
 
 public class Constans {
 	public static final String SERVER_PATH="/netty";
+	
+	//Response.code
+	public static final String SUCCESS="00000";
+	public static final String OVERLOADED="55555";//业务线程池队列已满，请求被拒绝
+	public static final String ERROR="66666";//服务端方法执行异常
 }
@@ -0,0 +1,118 @@
+package dispatch;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.netty.channel.Channel;
+import io.netty.util.AttributeKey;
+
+/**
+ * Backpressure 统计服务端已接收、尚未写回响应的请求数，按高低水位开关连接的 autoRead。
+ *
+ * - 单连接：某个连接上的未完成请求数达到高水位时暂停读取该连接，降到低水位以下恢复；
+ *   -Drpc.backpressure.channel.high（默认256）/ .low（默认128）；
+ * - 全局：所有连接的未完成请求总数达到高水位后进入过载状态，过载期间仍有请求到达的连接都会被暂停，
+ *   总数降到低水位以下时统一恢复；-Drpc.backpressure.global.high（默认10000）/ .low（默认5000）。
+ *
+ * 暂停读取后数据留在内核的 TCP 接收缓冲区，窗口收缩后由 TCP 流控把压力传回客户端，
+ * 而不是在堆里堆积注定会超时的请求。
+ *
+ * ServerHandler 在收到请求时调用 begin()，在写回响应（包括过载拒绝）时调用 end()；
+ * 等待 CREDIT 的流式响应暂时扣除，继续写出时再计入，见 ServerTask。
+ */
+public class Backpressure {
+	public static final int CHANNEL_HIGH = Integer.getInteger("rpc.backpressure.channel.high", 256);
+	public static final int CHANNEL_LOW = Integer.getInteger("rpc.backpressure.channel.low", 128);
+	public static final int GLOBAL_HIGH = Integer.getInteger("rpc.backpressure.global.high", 10000);
+	public static final int GLOBAL_LOW = Integer.getInteger("rpc.backpressure.global.low", 5000);
+
+	private static final AttributeKey<Load> LOAD = AttributeKey.valueOf("rpc.load");
+	private static final AtomicInteger pending = new AtomicInteger();
+	private static final AtomicBoolean overloaded = new AtomicBoolean();
+	//因全局过载被暂停的连接
+	private static final Set<Channel> paused = ConcurrentHashMap.newKeySet();
+
+	private Backpressure(){}
+
+	//单个连接的状态，状态变化在 synchronized(load) 中完成
+	static class Load {
+		int pending;
+		boolean channelPaused;
+		boolean globalPaused;
+	}
+
+	/**
+	 * 收到一个请求，在 I/O 线程上调用。
+	 */
+	public static void begin(Channel channel) {
+		Load load = channel.attr(LOAD).get();
+		if(load == null){
+			load = new Load();
+			channel.attr(LOAD).set(load);
+		}
+		if(pending.incrementAndGet() >= GLOBAL_HIGH){
+			overloaded.set(true);
+		}
+		synchronized (load) {
+			load.pending++;
+			if(load.pending >= CHANNEL_HIGH){
+				load.channelPaused = true;
+			}
+			if(overloaded.get()){
+				load.globalPaused = true;
+				paused.add(channel);
+			}
+			update(channel, load);
+		}
+	}
+
+	/**
+	 * 一个请求已经写回响应，可能在业务线程或异步回调线程上调用。
+	 */
+	public static void end(Channel channel) {
+		int total = pending.decrementAndGet();
+		Load load = channel.attr(LOAD).get();
+		if(load != null){
+			synchronized (load) {
+				load.pending--;
+				if(load.channelPaused && load.pending <= CHANNEL_LOW){
+					load.channelPaused = false;
+				}
+				if(load.globalPaused && !overloaded.get()){
+					load.globalPaused = false;
+				}
+				update(channel, load);
+			}
+		}
+		if(total <= GLOBAL_LOW && overloaded.compareAndSet(true, false)){
+			for(Channel ch : paused){
+				paused.remove(ch);
+				Load l = ch.attr(LOAD).get();
+				synchronized (l) {
+					l.globalPaused = false;
+					update(ch, l);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return 全局未完成的请求数
+	 */
+	public static int pending() {
+		return pending.get();
+	}
+
+	public static boolean isOverloaded() {
+		return overloaded.get();
+	}
+
+	private static void update(Channel channel, Load load) {
+		boolean autoRead = !load.channelPaused && !load.globalPaused;
+		if(channel.config().isAutoRead() != autoRead){
+			channel.config().setAutoRead(autoRead);
+		}
+	}
+}
@@ -0,0 +1,112 @@
+package dispatch;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * QueueDelay 按请求在业务线程池队列中的等待时间（sojourn time）判断过载，借鉴 CoDel 用最小排队时间识别持续积压的思路。
+ *
+ * 队列长度不是好的过载信号：同样 100 个排队请求，对快方法只是几毫秒，对慢方法可能是几秒。
+ * 这里改为在任务出队时测量它排了多久：
+ * - 每个 interval（-Drpc.codel.interval，默认100ms）统计一次本周期内最小的排队时间；
+ * - 周期内至少有一个请求出队、且最小排队时间都超过 target（-Drpc.codel.target，默认5ms），
+ *   说明队列不是突发而是持续积压，进入过载状态；没有请求出队的周期（空闲或停顿）不改变状态；
+ * - 过载状态下排队超过 2 * target 的请求不再执行，直接返回“服务端过载”的 Response，
+ *   让队列尽快回落，已执行请求的延迟保持在有界范围内；
+ * - 任意一个请求的排队时间回到 target 以内（队列已排空），或下一个周期的最小排队时间回到 target 以内时退出过载状态。
+ *
+ * 与 CoDel 不同，这里没有按 interval / √count 逐步加快的丢弃节奏：过载期间超过 2 * target 的请求全部丢弃，
+ * 换取更快地排空队列，代价是过载时丢弃的请求更多。
+ *
+ * 每个线程池（即每条队列）一个实例，-Drpc.codel.enabled=false 关闭。
+ */
+public class QueueDelay {
+	public static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("rpc.codel.enabled", "true"));
+	public static final long TARGET = TimeUnit.MILLISECONDS.toNanos(Long.getLong("rpc.codel.target", 5));
+	public static final long INTERVAL = TimeUnit.MILLISECONDS.toNanos(Long.getLong("rpc.codel.interval", 100));
+
+	private static final ConcurrentHashMap<Executor, QueueDelay> delays = new ConcurrentHashMap<Executor, QueueDelay>();
+	private static final AtomicLong shed = new AtomicLong();
+
+	private final long target;
+	private final long interval;
+	private long intervalEnd;
+	private long minDelay = Long.MAX_VALUE;
+	private int samples;
+	private volatile boolean overloaded;
+
+	public QueueDelay(long target, long interval) {
+		this(target, interval, System.nanoTime());
+	}
+
+	/**
+	 * @param now 第一个周期的起点（System.nanoTime()）
+	 */
+	public QueueDelay(long target, long interval, long now) {
+		this.target = target;
+		this.interval = interval;
+		this.intervalEnd = now + interval;
+	}
+
+	/**
+	 * @return 线程池对应的实例，未开启时返回 null
+	 */
+	public static QueueDelay of(Executor executor) {
+		if(!ENABLED || executor == null || executor == ServerExecutors.INLINE){
+			return null;
+		}
+		QueueDelay delay = delays.get(executor);
+		if(delay == null){
+			QueueDelay created = new QueueDelay(TARGET, INTERVAL);
+			delay = delays.putIfAbsent(executor, created);
+			if(delay == null){
+				delay = created;
+			}
+		}
+		return delay;
+	}
+
+	/**
+	 * 任务出队时调用。
+	 *
+	 * @param sojourn 在队列中等待的纳秒数
+	 * @param now     当前 System.nanoTime()
+	 * @return true 表示应丢弃该任务并返回过载响应
+	 */
+	public synchronized boolean shed(long sojourn, long now) {
+		if(now >= intervalEnd){
+			//上一个周期结束：最小排队时间都超过目标值，说明存在持续积压；没有样本的周期不做判断
+			if(samples > 0){
+				overloaded = minDelay > target;
+			}
+			minDelay = Long.MAX_VALUE;
+			samples = 0;
+			intervalEnd = now + interval;
+		}
+		samples++;
+		if(sojourn < minDelay){
+			minDelay = sojourn;
+		}
+		if(sojourn <= target){
+			overloaded = false;//队列已经排空到目标值以内，积压解除
+		}
+		if(overloaded && sojourn > 2 * target){
+			shed.incrementAndGet();
+			return true;
+		}
+		return false;
+	}
+
+	public boolean isOverloaded() {
+		return overloaded;
+	}
+
+	/**
+	 * @return 因排队时间过长而被丢弃的请求数
+	 */
+	public static long shedCount() {
+		return shed.get();
+	}
+}
@@ -0,0 +1,130 @@
+package dispatch;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import annotation.Remote;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+/**
+ * ServerExecutors 为服务端的业务方法分配执行线程池（舱壁隔离）。
+ *
+ * 线程池按以下优先级确定，配置了线程数的层级独占一个线程池：
+ * 1. 方法级：实现方法上的 @Remote(threads, queues)，或 -Drpc.executor.接口名.方法名.threads / .queues；
+ *    方法级线程池按方法签名（如 UserRemote.save(User)）区分，重载方法各自独占线程池，
+ *    也可以用 -Drpc.executor.UserRemote.save(User).threads 单独配置某一个重载，它优先于按方法名的配置；
+ * 2. 服务级：实现类上的 @Remote(threads, queues)，或 -Drpc.executor.接口名.threads / .queues；
+ * 3. 默认：所有未单独配置的方法共用一个线程池，-Drpc.executor.threads（默认10）/ -Drpc.executor.queues（默认1024）。
+ *
+ * 方法级、服务级也可以用 @Remote(inline = true) 或 -Drpc.executor.接口名.inline=true 标记为内联执行，
+ * 这类方法返回 {@link #INLINE}，ServerHandler 直接在 I/O 线程上解码、调用、编码，不做线程切换。
+ *
+ * 方法级、服务级也可以选择虚拟线程模式：@Remote(virtual = true, maxConcurrency = 500)，
+ * 或 -Drpc.executor.接口名.virtual=true / .maxConcurrency，见 {@link VirtualThreadExecutor}。
+ *
+ * 所有线程池的队列都是有界的（ArrayBlockingQueue），队列满时 execute 直接抛出
+ * RejectedExecutionException，由 ServerHandler 立即返回“服务端过载”的 Response，
+ * 一个变慢的方法只会占满自己的线程池，不会拖垮其他方法。
+ */
+public class ServerExecutors {
+	public static final String PREFIX = "rpc.executor.";
+	public static final int DEFAULT_THREADS = Integer.getInteger(PREFIX + "threads", 10);
+	public static final int DEFAULT_QUEUES = Integer.getInteger(PREFIX + "queues", 1024);
+	public static final int DEFAULT_MAX_CONCURRENCY = Integer.getInteger(PREFIX + "maxConcurrency", 1000);
+
+	/**
+	 * 内联执行：在提交任务的线程（即 I/O 线程）上直接运行
+	 */
+	public static final Executor INLINE = new Executor() {
+		
+		@Override
+		public void execute(Runnable command) {
+			command.run();
+		}
+	};
+
+	private static final ConcurrentHashMap<String, Executor> executors = new ConcurrentHashMap<String, Executor>();
+
+	private ServerExecutors(){}
+
+	/**
+	 * 默认线程池，未单独配置的方法以及找不到目标方法的请求都在这里执行。
+	 */
+	public static Executor defaultExecutor() {
+		return executor("default", DEFAULT_THREADS, DEFAULT_QUEUES);
+	}
+
+	/**
+	 * @param service   接口（方法签名中使用的服务名）
+	 * @param impl      实际执行的实现方法
+	 * @param signature 方法签名（Medium.signature），方法级线程池以它为名
+	 */
+	public static Executor of(Class<?> service, Method impl, String signature) {
+		String serviceKey = service.getSimpleName();
+		Executor executor = configured(signature, serviceKey + "." + impl.getName(), impl.getAnnotation(Remote.class));
+		if(executor == null){
+			executor = configured(serviceKey, null, impl.getDeclaringClass().getAnnotation(Remote.class));
+		}
+		return executor == null ? defaultExecutor() : executor;
+	}
+
+	//按 key 对应的注解和系统属性创建独占的执行器，没有配置时返回 null；alias 是 key 之外也接受的属性名
+	private static Executor configured(String key, String alias, Remote remote) {
+		if(Boolean.parseBoolean(property(key, alias, "inline", String.valueOf(remote != null && remote.inline())))){
+			return INLINE;
+		}
+		int queues = Integer.parseInt(property(key, alias, "queues", String.valueOf(remote == null ? 0 : remote.queues())));
+		boolean virtual = Boolean.parseBoolean(property(key, alias, "virtual", String.valueOf(remote != null && remote.virtual())));
+		if(virtual){
+			int maxConcurrency = Integer.parseInt(property(key, alias, "maxConcurrency", String.valueOf(remote == null ? 0 : remote.maxConcurrency())));
+			return virtualExecutor(key, maxConcurrency > 0 ? maxConcurrency : DEFAULT_MAX_CONCURRENCY, queues);
+		}
+		int threads = Integer.parseInt(property(key, alias, "threads", String.valueOf(remote == null ? 0 : remote.threads())));
+		return threads > 0 ? executor(key, threads, queues) : null;
+	}
+
+	//-Drpc.executor.key.name 优先，其次 -Drpc.executor.alias.name，都没有时为 def
+	private static String property(String key, String alias, String name, String def) {
+		String value = System.getProperty(PREFIX + key + "." + name);
+		if(value == null && alias != null){
+			value = System.getProperty(PREFIX + alias + "." + name);
+		}
+		return value == null ? def : value;
+	}
+
+	private static Executor executor(String name, int threads, int queues) {
+		Executor executor = executors.get(name);
+		if(executor != null){
+			return executor;
+		}
+		ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<Runnable>(queues > 0 ? queues : DEFAULT_QUEUES),
+				new DefaultThreadFactory("rpc-" + name, true),
+				new ThreadPoolExecutor.AbortPolicy());
+		Executor old = executors.putIfAbsent(name, pool);
+		if(old != null){
+			pool.shutdown();
+			return old;
+		}
+		System.out.println("业务线程池 " + name + " threads=" + threads + " queues=" + pool.getQueue().remainingCapacity());
+		return pool;
+	}
+
+	private static Executor virtualExecutor(String name, int maxConcurrency, int queues) {
+		Executor executor = executors.get(name);
+		if(executor != null){
+			return executor;
+		}
+		executor = new VirtualThreadExecutor(maxConcurrency, queues > 0 ? queues : DEFAULT_QUEUES);
+		Executor old = executors.putIfAbsent(name, executor);
+		if(old != null){
+			return old;
+		}
+		System.out.println("虚拟线程执行器 " + name + " maxConcurrency=" + maxConcurrency + " virtual=" + VirtualThreadExecutor.isVirtual());
+		return executor;
+	}
+}
@@ -0,0 +1,377 @@
+package dispatch;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+import codec.StreamChunk;
+import constants.Constans;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.util.AttributeKey;
+import io.netty.util.collection.LongObjectHashMap;
+import medium.BeanMethod;
+import medium.Medium;
+import medium.ResponseCache;
+import model.Response;
+import model.ServerRequest;
+import util.ResponseUtil;
+
+/**
+ * ServerTask 是服务端处理一个请求的任务，从收到请求一直到写回响应。
+ *
+ * 状态：QUEUED（在业务线程池队列中）→ RUNNING（执行中或等待异步结果）→ DONE，
+ * 任何未完成的状态都可以被客户端的 CANCEL 帧转为 CANCELLED：
+ * - 还在队列中：从线程池队列中移除，不再执行；
+ * - 正在执行：-Drpc.cancel.interrupt=true 时中断执行线程，异步方法则取消它返回的 Future，
+ *   执行结束后不再写回响应。
+ *
+ * 每个连接在 IN_FLIGHT 属性中按 requestId 登记自己的任务，取消帧和连接断开时据此找到任务。
+ * 提交时记录入队时间，出队时把排队时间交给 {@link QueueDelay}，持续积压时直接返回过载响应。
+ * 同一个任务的 Backpressure.begin()/end() 各调用一次。
+ *
+ * 方法返回 Iterator 时是流式响应：元素逐个写成 STREAM 帧，写出的个数不超过客户端 CREDIT 帧累计的额度，
+ * 额度用完时释放业务线程，补充额度后重新提交到原来的线程池继续写；
+ * 等待额度期间不计入 Backpressure，否则暂停读取的连接收不到 CREDIT / CANCEL 帧，流永远无法结束；
+ * 迭代结束后写回 result 为元素个数的成功响应，迭代器实现了 AutoCloseable 时在流结束或取消后关闭。
+ * 两端缓存的元素都不超过一个窗口，内存占用与结果总量无关。
+ */
+public class ServerTask implements Runnable {
+	public static final boolean INTERRUPT = Boolean.getBoolean("rpc.cancel.interrupt");
+
+	static final int QUEUED = 0;
+	static final int RUNNING = 1;
+	static final int DONE = 2;
+	static final int CANCELLED = 3;
+
+	private static final AttributeKey<InFlight> IN_FLIGHT = AttributeKey.valueOf("rpc.serverTasks");
+	private static final AtomicLong expired = new AtomicLong();
+	private static final AtomicLong cancelled = new AtomicLong();
+
+	private final ChannelHandlerContext ctx;
+	private final ServerRequest request;
+	private final BeanMethod beanMethod;
+	private final AtomicInteger state = new AtomicInteger(QUEUED);
+	private volatile Executor executor;
+	private long enqueued;
+	private volatile Thread runner;
+	private volatile CompletionStage<?> stage;
+
+	//流式响应：pumping 为 true 时由一个线程独占写出元素，流开始前 CREDIT 帧只累计额度
+	private final AtomicInteger credits = new AtomicInteger();
+	private final AtomicBoolean pumping = new AtomicBoolean(true);
+	private volatile Iterator<?> iterator;
+	private Type elementType;
+	private int seq;
+	//等待额度、已从 Backpressure 中扣除，只由持有 pumping 的线程访问
+	private boolean parked;
+	private final Runnable pumpTask = new Runnable() {
+		
+		@Override
+		public void run() {
+			pump();
+		}
+	};
+
+	//一个连接上的在途任务，I/O 线程登记和取消，业务线程完成时移除
+	static class InFlight {
+		private final LongObjectHashMap<ServerTask> tasks = new LongObjectHashMap<ServerTask>();
+
+		synchronized void put(long id, ServerTask task) {
+			tasks.put(id, task);
+		}
+
+		synchronized ServerTask get(long id) {
+			return tasks.get(id);
+		}
+
+		synchronized ServerTask remove(long id) {
+			return tasks.remove(id);
+		}
+
+		synchronized void remove(long id, ServerTask task) {
+			if(tasks.get(id) == task){
+				tasks.remove(id);
+			}
+		}
+
+		synchronized List<ServerTask> drain() {
+			List<ServerTask> list = new ArrayList<ServerTask>(tasks.values());
+			tasks.clear();
+			return list;
+		}
+	}
+
+	/**
+	 * 在 I/O 线程上创建，计入背压统计并登记到连接的在途任务中。
+	 */
+	public ServerTask(ChannelHandlerContext ctx, ServerRequest request, BeanMethod beanMethod) {
+		this.ctx = ctx;
+		this.request = request;
+		this.beanMethod = beanMethod;
+		Channel channel = ctx.channel();
+		InFlight inFlight = channel.attr(IN_FLIGHT).get();
+		if(inFlight == null){
+			inFlight = new InFlight();
+			channel.attr(IN_FLIGHT).set(inFlight);
+		}
+		inFlight.put(request.getId(), this);
+		Backpressure.begin(channel);
+	}
+
+	/**
+	 * 提交到业务线程池，队列已满时立即写回过载响应。
+	 */
+	public void submit(Executor executor) {
+		this.executor = executor;
+		this.enqueued = System.nanoTime();
+		try {
+			executor.execute(this);
+		} catch (RejectedExecutionException e) {
+			//队列已满，快速失败，不让请求继续堆积
+			finish(ResponseUtil.createFailResponse(Constans.OVERLOADED, "服务端繁忙，请求被拒绝"));
+		}
+	}
+
+	@Override
+	public void run() {
+		if(!state.compareAndSet(QUEUED, RUNNING)){
+			return;//排队期间已被取消
+		}
+		if(request.isExpired()){
+			expired.incrementAndGet();
+			finish(null);//客户端已经放弃等待
+			return;
+		}
+		long now = System.nanoTime();
+		QueueDelay delay = QueueDelay.of(executor);
+		if(delay != null){
+			if(delay.shed(now - enqueued, now)){
+				//队列持续积压，丢弃排队过久的请求，让队列尽快回落
+				finish(ResponseUtil.createFailResponse(Constans.OVERLOADED, "服务端繁忙，排队超时"));
+				return;
+			}
+		}
+		Object result;
+		runner = Thread.currentThread();
+		try {
+			result = Medium.newInstance().invoke(request, beanMethod);
+		} finally {
+			//与 cancel() 的中断互斥：清除 runner 之后不会再有针对这个任务的中断
+			synchronized (this) {
+				runner = null;
+			}
+			if(INTERRUPT){
+				Thread.interrupted();//清除取消时可能留下的中断标记
+			}
+		}
+		reply(result);
+	}
+
+	//同步结果直接写回；CompletionStage 在完成时由完成它的线程写回；Iterator 按额度逐个写出
+	@SuppressWarnings("unchecked")
+	private void reply(Object result) {
+		if(result instanceof Iterator){
+			elementType = elementTypeOf(beanMethod.getMethod().getGenericReturnType());
+			iterator = (Iterator<?>) result;
+			pump();
+		}else if(result instanceof CompletionStage){
+			stage = (CompletionStage<?>) result;
+			((CompletionStage<Object>) result).whenComplete(new BiConsumer<Object, Throwable>() {
+				
+				@Override
+				public void accept(Object value, Throwable cause) {
+					finish(cause == null ? Medium.toResponse(request, value) : Medium.failure(request, cause));
+				}
+			});
+		}else{
+			finish((Response) result);
+		}
+	}
+
+	//Iterator<T> 中的 T，元素按它序列化
+	private static Type elementTypeOf(Type returnType) {
+		if(returnType instanceof ParameterizedType){
+			Type t = ((ParameterizedType) returnType).getActualTypeArguments()[0];
+			return t instanceof WildcardType ? ((WildcardType) t).getUpperBounds()[0] : t;
+		}
+		return Object.class;
+	}
+
+	//在当前线程上按额度写出元素；额度用完时退出，由 credit() 重新提交
+	private void pump() {
+		do {
+			unpark();
+			try {
+				while(credits.get() > 0 && state.get() == RUNNING){
+					if(!iterator.hasNext()){
+						finish(ResponseUtil.createSuccessResponse(seq));
+						return;
+					}
+					credits.decrementAndGet();
+					ctx.channel().writeAndFlush(new StreamChunk(request.getId(), request.getSerializer(), seq++, iterator.next(), elementType));
+				}
+			} catch (Throwable e) {
+				finish(Medium.failure(request, e));
+				return;
+			}
+			if(state.get() != RUNNING){
+				finish(null);//已被取消
+				return;
+			}
+			parked = true;
+			Backpressure.end(ctx.channel());
+			pumping.set(false);
+		} while(credits.get() > 0 && pumping.compareAndSet(false, true));//退出前到达的额度
+	}
+
+	//补充额度或取消后，在原来的线程池上继续写出（inline 方法在 I/O 线程上）
+	private void resume() {
+		unpark();
+		Executor exec = executor == null ? ctx.executor() : executor;
+		try {
+			exec.execute(pumpTask);
+		} catch (RejectedExecutionException e) {
+			finish(ResponseUtil.createFailResponse(Constans.OVERLOADED, "服务端繁忙，流式响应中断"));
+		}
+	}
+
+	//重新开始写出，重新计入 Backpressure
+	private void unpark() {
+		if(parked){
+			parked = false;
+			Backpressure.begin(ctx.channel());
+		}
+	}
+
+	/**
+	 * 客户端补充了额度，流式响应正在等待额度时继续写出。
+	 */
+	public void credit(int n) {
+		credits.addAndGet(n);
+		if(iterator != null && pumping.compareAndSet(false, true)){
+			resume();
+		}
+	}
+
+	//任务结束：移出在途任务、结束背压统计，没有被取消时写回响应（沿用请求的序列化方式）
+	private void finish(Response response) {
+		InFlight inFlight = ctx.channel().attr(IN_FLIGHT).get();
+		if(inFlight != null){
+			inFlight.remove(request.getId(), this);
+		}
+		Backpressure.end(ctx.channel());
+		closeIterator();
+		if(state.getAndSet(DONE) != CANCELLED && response != null){
+			response.setId(request.getId());
+			response.setSerializer(request.getSerializer());
+			ResponseCache cache = beanMethod == null || iterator != null ? null : beanMethod.getCache();
+			//开启了响应缓存的方法在这里序列化一次，成功的响应字节放入缓存
+			ctx.channel().writeAndFlush(cache == null ? response : cache.put(request, response));
+		}
+	}
+
+	private void closeIterator() {
+		Iterator<?> it = iterator;
+		if(it instanceof AutoCloseable){
+			try {
+				((AutoCloseable) it).close();
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * 取消任务，客户端发来 CANCEL 帧或连接断开时调用。
+	 */
+	public void cancel() {
+		if(state.compareAndSet(QUEUED, CANCELLED)){
+			cancelled.incrementAndGet();
+			Executor exec = executor;
+			if(exec instanceof ThreadPoolExecutor){
+				((ThreadPoolExecutor) exec).remove(this);
+			}
+			Backpressure.end(ctx.channel());
+		}else if(state.compareAndSet(RUNNING, CANCELLED)){
+			cancelled.incrementAndGet();
+			CompletionStage<?> s = stage;
+			if(s != null){
+				s.toCompletableFuture().cancel(INTERRUPT);
+			}
+			if(INTERRUPT){
+				interruptRunner();
+			}
+			if(iterator != null && pumping.compareAndSet(false, true)){
+				resume();//流式响应正在等待额度，由写出线程结束任务
+			}
+		}
+	}
+
+	//只在 runner 仍是执行本任务的线程时中断，避免中断落到线程池接着执行的其他请求上
+	private synchronized void interruptRunner() {
+		Thread t = runner;
+		if(t != null){
+			t.interrupt();
+		}
+	}
+
+	/**
+	 * 处理客户端的 CANCEL 帧。
+	 */
+	public static void cancel(Channel channel, long requestId) {
+		InFlight inFlight = channel.attr(IN_FLIGHT).get();
+		ServerTask task = inFlight == null ? null : inFlight.remove(requestId);
+		if(task != null){
+			task.cancel();
+		}
+	}
+
+	/**
+	 * 处理客户端的 CREDIT 帧。
+	 */
+	public static void credit(Channel channel, long requestId, int credits) {
+		InFlight inFlight = channel.attr(IN_FLIGHT).get();
+		ServerTask task = inFlight == null ? null : inFlight.get(requestId);
+		if(task != null){
+			task.credit(credits);
+		}
+	}
+
+	/**
+	 * 连接断开，连接上所有未完成的任务都没有人等待了。
+	 */
+	public static void cancelAll(Channel channel) {
+		InFlight inFlight = channel.attr(IN_FLIGHT).get();
+		if(inFlight != null){
+			for(ServerTask task : inFlight.drain()){
+				task.cancel();
+			}
+		}
+	}
+
+	/**
+	 * @return 因为客户端已超时而在出队时丢弃的请求数
+	 */
+	public static long expiredCount() {
+		return expired.get();
+	}
+
+	/**
+	 * @return 被客户端取消（或连接断开）的请求数
+	 */
+	public static long cancelledCount() {
+		return cancelled.get();
+	}
+}
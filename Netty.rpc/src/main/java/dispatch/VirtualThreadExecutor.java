@@ -0,0 +1,78 @@
+package dispatch;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+/**
+ * VirtualThreadExecutor 为每个请求启动一个虚拟线程执行，适合大部分时间阻塞在下游 I/O 上的服务。
+ *
+ * - 运行在 JDK 21 及以上时使用 Executors.newVirtualThreadPerTaskExecutor()（通过反射获取，
+ *   项目仍按 Java 8 编译）；更低版本退化为按需创建守护线程的线程池；
+ * - maxConcurrency 限制同时执行业务方法的请求数，保护下游资源，超出的请求在各自的虚拟线程里
+ *   等待许可，等待中的请求数超过 queues 时直接拒绝（RejectedExecutionException → 过载响应）。
+ */
+public class VirtualThreadExecutor implements Executor {
+	private static final ExecutorService threads = newThreadPerTaskExecutor();
+
+	private final Semaphore permits;
+	private final int limit;
+	private final AtomicInteger admitted = new AtomicInteger();
+
+	public VirtualThreadExecutor(int maxConcurrency, int queues) {
+		this.permits = new Semaphore(maxConcurrency);
+		this.limit = maxConcurrency + queues;
+	}
+
+	/**
+	 * @return 当前 JVM 是否支持虚拟线程
+	 */
+	public static boolean isVirtual() {
+		return !(threads instanceof java.util.concurrent.ThreadPoolExecutor);
+	}
+
+	@Override
+	public void execute(final Runnable command) {
+		if(admitted.incrementAndGet() > limit){
+			admitted.decrementAndGet();
+			throw new RejectedExecutionException("并发已达上限:" + limit);
+		}
+		try {
+			threads.execute(new Runnable() {
+				
+				@Override
+				public void run() {
+					try {
+						permits.acquireUninterruptibly();
+						try {
+							command.run();
+						} finally {
+							permits.release();
+						}
+					} finally {
+						admitted.decrementAndGet();
+					}
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			admitted.decrementAndGet();
+			throw e;
+		}
+	}
+
+	private static ExecutorService newThreadPerTaskExecutor() {
+		try {
+			Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) method.invoke(null);
+		} catch (Exception e) {
+			//JDK 21 以下没有虚拟线程
+			return Executors.newCachedThreadPool(new DefaultThreadFactory("rpc-virtual", true));
+		}
+	}
+}
@@ -91,7 +91,7 @@ public class ResultFuture {
 				try {
 					future.setResponse(response);
 					future.condition.signal();
-					map.remove(future);//别忘记remove
+					map.remove(response.getId());//别忘记remove，key 是 requestId
 				} catch (Exception e) {
 					e.printStackTrace();
 				}finally {
@@ -1,20 +1,21 @@
 package handler;
 
 
-import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
-
-import com.alibaba.fastjson.JSON;
-import com.alibaba.fastjson.JSONObject;
-
-import future.ResultFuture;
+import codec.Batch;
+import codec.Cancel;
+import codec.Credit;
+import codec.EncodedResponse;
+import codec.Handshake;
+import dispatch.ServerExecutors;
+import dispatch.ServerTask;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.handler.timeout.IdleState;
 import io.netty.handler.timeout.IdleStateEvent;
+import medium.BeanMethod;
 import medium.Medium;
-import model.Response;
+import medium.ResponseCache;
 import model.ServerRequest;
 
 
@@ -23,18 +24,28 @@ import model.ServerRequest;
  *
  * 工作流程：
  * 1. 当客户端有消息发送过来时，会触发 channelRead() 方法；
- * 2. 将接收到的 JSON 字符串反序列化为 ServerRequest 对象；
+ * 2. 收到的已经是 RpcDecoder 从二进制帧还原出的 ServerRequest 对象；
  * 3. 交给 Medium（中介者模式）进行处理，Medium 会根据请求的服务名/方法名找到对应的 Bean 和方法并执行；
- * 4. 将执行结果封装为 Response，并序列化为 JSON，通过 ctx.channel().writeAndFlush() 返回给客户端。
+ * 4. 将执行结果封装为 Response，通过 ctx.channel().writeAndFlush() 交给 RpcEncoder 编码后返回给客户端。
  *
  * 线程模型：
- * - 为了避免耗时业务阻塞 Netty 的 I/O 线程，这里使用了一个固定大小的线程池 (Executors.newFixedThreadPool(10))；
- * - 每个请求会被提交到线程池异步执行，保证 I/O 线程能专注于网络事件处理。
+ * - 为了避免耗时业务阻塞 Netty 的 I/O 线程，请求在 I/O 线程上按方法id找到目标方法后，
+ *   提交到该方法的业务线程池执行（见 dispatch.ServerExecutors，按服务/方法隔离、队列有界）；
+ * - 线程池队列已满时不排队，直接在 I/O 线程上返回 code 为 55555 的过载响应；
+ * - 请求出队时测量排队时间，队列持续积压时丢弃排队过久的请求并返回过载响应（dispatch.QueueDelay）；
+ * - @Remote(inline = true) 的方法不切换线程，直接在 I/O 线程上调用并写回响应；
+ * - 方法返回 CompletionStage 时不等待，注册回调在它完成时写回响应，业务线程立即释放；
+ * - 请求离开队列时检查客户端传来的截止时间，已过期的请求直接丢弃（不执行、不回包）；
+ * - 每个请求从收到到写回都计入 dispatch.Backpressure，未完成的请求过多时暂停读取连接（autoRead）；
+ * - 标注了 @CacheResult 的方法先查响应缓存，命中时直接在 I/O 线程上写回缓存的响应字节（medium.ResponseCache）；
+ * - 方法返回 Iterator 时按客户端 CREDIT 帧给出的额度逐个写出 STREAM 帧，额度用完时释放业务线程，补充后继续；
+ * - BATCH 帧中的多个请求逐个按上面的方式分派，各自写回响应（由 FlushCoalescer 合并 flush）；
+ * - 客户端的 CANCEL 帧和连接断开会取消还没完成的请求，见 dispatch.ServerTask。
+ * - 解码失败（magic、版本、长度非法等）或处理中抛出异常时关闭连接，见 exceptionCaught()。
  *
  * 关键点：
  * - 继承自 ChannelInboundHandlerAdapter，重写 channelRead() 处理入站消息；
- * - 使用 JSONObject 将字符串和对象进行序列化/反序列化；
- * - 在返回数据时手动加上 "\r\n"，因为前面 pipeline 使用了 DelimiterBasedFrameDecoder，以换行作为消息分隔符。
+ * - 序列化/反序列化和切帧都由 pipeline 中的 RpcDecoder/RpcEncoder 完成，这里只处理消息对象。
  *
  * 使用场景：
  * - 服务端接收 RPC 客户端请求；
@@ -44,33 +55,68 @@ import model.ServerRequest;
 
 
 public class ServerHandler extends ChannelInboundHandlerAdapter  {
-	private static final Executor exec = Executors.newFixedThreadPool(10);
+	
 	@Override
 	public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
-		System.out.println("服务器Handler:"+msg.toString());
-//		ServerRequest serverRequest = JSONObject.parseObject(msg.toString(), ServerRequest.class);
-//		System.out.println(serverRequest.getCommand());
-		exec.execute(new Runnable() {
-			
-			@Override
-			public void run() {
-				ServerRequest serverRequest = JSONObject.parseObject(msg.toString(), ServerRequest.class);
-				System.out.println(serverRequest.getCommand());
-				Medium medium = Medium.newInstance();//生成中介者模式
-				
-				Response response = medium.process(serverRequest);
-				
-				//向客户端发送Resonse
-				ctx.channel().writeAndFlush(JSONObject.toJSONString(response)+"\r\n");
+		if(msg instanceof Handshake){
+			//回复方法表，之后客户端请求只携带方法id
+			ctx.channel().writeAndFlush(new Handshake(Medium.signatures()));
+			return;
+		}
+		if(msg instanceof Cancel){
+			//客户端已超时或主动取消
+			ServerTask.cancel(ctx.channel(), ((Cancel) msg).getId());
+			return;
+		}
+		if(msg instanceof Credit){
+			//流式调用的客户端补充了额度
+			ServerTask.credit(ctx.channel(), ((Credit) msg).getId(), ((Credit) msg).getCredits());
+			return;
+		}
+		if(msg instanceof Batch){
+			//批量请求逐个分派，与单独到达时相同
+			for(ServerRequest request : ((Batch) msg).getRequests()){
+				dispatch(ctx, request);
 			}
-		});
-//		Medium medium = Medium.newInstance();//生成中介者模式
-//		
-//		Response response = medium.process(serverRequest);
-//		
-//		//向客户端发送Resonse
-//		ctx.channel().writeAndFlush(JSONObject.toJSONString(response)+"\r\n");
-		
+			return;
+		}
+		if(msg instanceof ServerRequest){
+			dispatch(ctx, (ServerRequest) msg);
+		}
+		//心跳等非请求帧不进入业务线程池
+	}
+	
+	private void dispatch(ChannelHandlerContext ctx, ServerRequest serverRequest) {
+		BeanMethod beanMethod = Medium.lookup(serverRequest);
+		ResponseCache cache = beanMethod == null ? null : beanMethod.getCache();
+		if(cache != null){
+			EncodedResponse cached = cache.get(serverRequest);
+			if(cached != null){
+				//命中响应缓存，不切换线程、不调用方法、不序列化
+				ctx.channel().writeAndFlush(cached);
+				return;
+			}
+		}
+		ServerTask task = new ServerTask(ctx, serverRequest, beanMethod);
+		if(beanMethod != null && beanMethod.isInline()){
+			task.run();
+			return;
+		}
+		task.submit(beanMethod == null ? ServerExecutors.defaultExecutor() : beanMethod.getExecutor());
+	}
+	
+	@Override
+	public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+		//连接断开，取消这个连接上还没完成的请求
+		ServerTask.cancelAll(ctx.channel());
+		super.channelInactive(ctx);
+	}
+	
+	@Override
+	public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+		//多为 RpcDecoder 的 CorruptedFrameException，之后的字节已无法对齐到帧边界，只能断开
+		cause.printStackTrace();
+		ctx.close();//关闭后触发 channelInactive，取消这个连接上的请求
 	}
 
 //	@Override
@@ -87,7 +133,7 @@ public class ServerHandler extends ChannelInboundHandlerAdapter  {
 //			}
 //			if(event.state().equals(IdleState.ALL_IDLE)){
 //				System.out.println("读写空闲");
-//				ctx.channel().writeAndFlush("ping\r\n");
+//				ctx.channel().writeAndFlush(Heartbeat.PING);
 //			}
 //		}
 //	}
@@ -1,8 +1,6 @@
 package handler;
 
-import com.alibaba.fastjson.JSON;
-import com.alibaba.fastjson.JSONObject;
-
+import codec.Heartbeat;
 import future.ResultFuture;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
@@ -14,13 +12,14 @@ public class SimpleClientHandler extends ChannelInboundHandlerAdapter implements
 
 	@Override
 	public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
-		if(msg.toString().equals("ping")){
+		if(msg == Heartbeat.PING){
 			System.out.println("收到读写空闲ping,向服务端发送pong");
-			ctx.channel().writeAndFlush("pong\r\n");
+			ctx.channel().writeAndFlush(Heartbeat.PONG);
+			return;
 		}
 		
 		//设置response
-		Response response = JSONObject.parseObject(msg.toString(), Response.class);
+		Response response = (Response) msg;
 		ResultFuture.receive(response);//通过response的ID可以在map中找到对应的Request,并为相应的request设置response,使得调用get()客户端得到结果
 	}
 	
@@ -11,18 +11,35 @@ package medium;
  * 字段说明：
  * - bean   : Spring 容器中的具体 Bean 实例（例如 UserServiceImpl 对象）。
  * - method : 该 Bean 上暴露的某个方法（java.lang.reflect.Method）。
+ * - parameterTypes : 注册时缓存的参数泛型类型（getGenericParameterTypes），
+ *                    请求参数直接按它反序列化，List<User> 这类参数不会退化成 List<JSONObject>。
+ * - invoker : 注册时生成的 MethodInvoker，已经绑定了 bean，调用时不再经过 Method.invoke。
+ * - signature / id : 方法签名（接口名.方法名(参数类型)）以及 Medium 为它分配的方法id。
+ * - executor : 执行该方法的业务线程池，由 ServerExecutors 按 @Remote / 配置分配；
+ *              为 ServerExecutors.INLINE 时方法直接在 I/O 线程上执行。
+ * - cache : 实现方法标注了 @CacheResult 时的响应缓存，否则为 null。
  *
  * 使用场景：
  * - RPC 框架的服务端方法映射；
- * - 通过反射执行具体的业务逻辑。
+ * - 通过预先生成的 MethodInvoker 执行具体的业务逻辑。
  */
 
 
 import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.util.concurrent.Executor;
+
+import dispatch.ServerExecutors;
 
 public class BeanMethod {
 	private Object bean;
 	private Method method;
+	private Type[] parameterTypes;
+	private MethodInvoker invoker;
+	private String signature;
+	private int id;
+	private Executor executor;
+	private ResponseCache cache;
 	
 	
 	public Object getBean() {
@@ -36,6 +53,43 @@ public class BeanMethod {
 	}
 	public void setMethod(Method method) {
 		this.method = method;
+		this.parameterTypes = method.getGenericParameterTypes();
+	}
+	public Type[] getParameterTypes() {
+		return parameterTypes;
+	}
+	public ResponseCache getCache() {
+		return cache;
+	}
+	public void setCache(ResponseCache cache) {
+		this.cache = cache;
+	}
+	public Executor getExecutor() {
+		return executor;
+	}
+	public void setExecutor(Executor executor) {
+		this.executor = executor;
+	}
+	public boolean isInline() {
+		return executor == ServerExecutors.INLINE;
+	}
+	public String getSignature() {
+		return signature;
+	}
+	public void setSignature(String signature) {
+		this.signature = signature;
+	}
+	public int getId() {
+		return id;
+	}
+	public void setId(int id) {
+		this.id = id;
+	}
+	public MethodInvoker getInvoker() {
+		return invoker;
+	}
+	public void setInvoker(MethodInvoker invoker) {
+		this.invoker = invoker;
 	}
 	
 	
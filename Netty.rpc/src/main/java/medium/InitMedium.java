@@ -1,14 +1,15 @@
 package medium;
 
 import java.lang.reflect.Method;
-import java.util.HashMap;
 
 import org.springframework.beans.BeansException;
 import org.springframework.beans.factory.config.BeanPostProcessor;
 import org.springframework.stereotype.Component;
 import org.springframework.stereotype.Controller;
 
+import annotation.CacheResult;
 import annotation.Remote;
+import dispatch.ServerExecutors;
 import annotation.RemoteInvoke;
 import controller.UserController;
 
@@ -20,10 +21,10 @@ import controller.UserController;
  * 1. Spring 在启动时会依次实例化所有 Bean；
  * 2. 每当一个 Bean 初始化完成后，Spring 会回调 postProcessAfterInitialization 方法，
  *    并将该 Bean 作为参数传入；
- * 3. 如果该 Bean 的类上存在 @Remote 注解，则获取该类中所有方法，
- *    将 (Bean实例 + Method对象) 封装成 BeanMethod；
- * 4. 将 BeanMethod 保存到 Medium.mediamap 中，key 通常是方法名（或接口名+方法名），
- *    供后续 RPC 请求时通过反射调用；
+ * 3. 如果该 Bean 的类上存在 @Remote 注解，则获取它实现的接口中的所有方法，
+ *    将 (Bean实例 + 实现方法 + 预先生成的 MethodInvoker) 封装成 BeanMethod；
+ * 4. 通过 Medium.register 按方法签名（接口名.方法名(参数类型)）登记 BeanMethod 并分配方法id，
+ *    供后续 RPC 请求时直接通过 MethodInvoker 调用；
  * 5. 如果 Bean 没有 @Remote 注解，则直接忽略，不做任何处理。
  *
  * 作用：
@@ -38,21 +39,45 @@ public class InitMedium implements BeanPostProcessor{
 	//中介者
 	@Override
 	public Object postProcessAfterInitialization(Object bean, String arg1) throws BeansException {
-		if(bean.getClass().isAnnotationPresent(Remote.class)){
-			Method[] methods = bean.getClass().getDeclaredMethods();//客户端那里用的是接口，所以getSuperClass
-			for(Method m : methods){
-//				String key = bean.getClass().getInterfaces()[0].getName()+"."+m.getName();
-				String key = m.getName();//修改
-				HashMap<String, BeanMethod> map = Medium.mediamap;
-				BeanMethod beanMethod = new BeanMethod();
-				beanMethod.setBean(bean);
-				beanMethod.setMethod(m);
-				map.put(key,beanMethod);
-				System.out.println(key);
+		Class<?> clazz = bean.getClass();
+		if(clazz.isAnnotationPresent(Remote.class)){
+			//客户端那里用的是接口，所以按接口中声明的方法注册
+			Class<?>[] interfaces = clazz.getInterfaces();
+			if(interfaces.length == 0){
+				interfaces = new Class<?>[]{clazz};
+			}
+			for(Class<?> service : interfaces){
+				for(Method m : service.getMethods()){
+					register(bean, service, m);
+				}
 			}
 		}
 		return bean;
 	}
+	
+	private void register(Object bean, Class<?> service, Method m) {
+		Method impl;
+		try {
+			impl = bean.getClass().getMethod(m.getName(), m.getParameterTypes());
+		} catch (NoSuchMethodException e) {
+			return;
+		}
+		if(impl.getDeclaringClass() == Object.class){
+			return;
+		}
+		BeanMethod beanMethod = new BeanMethod();
+		beanMethod.setBean(bean);
+		beanMethod.setMethod(impl);
+		beanMethod.setInvoker(MethodInvokers.create(bean, impl));
+		beanMethod.setSignature(Medium.signature(service, m));
+		beanMethod.setExecutor(ServerExecutors.of(service, impl, beanMethod.getSignature()));
+		CacheResult cacheResult = impl.getAnnotation(CacheResult.class);
+		if(cacheResult != null){
+			beanMethod.setCache(new ResponseCache(cacheResult.ttl(), cacheResult.maxSize()));
+		}
+		int id = Medium.register(beanMethod);
+		System.out.println(id+" -> "+beanMethod.getSignature()+(beanMethod.isInline() ? " (inline)" : "")+(cacheResult != null ? " (cache ttl=" + cacheResult.ttl() + "ms)" : ""));
+	}
 
 	@Override
 	public Object postProcessBeforeInitialization(Object bean, String arg1) throws BeansException {
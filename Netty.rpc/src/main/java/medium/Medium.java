@@ -1,28 +1,45 @@
 package medium;
 
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
 
-import com.alibaba.fastjson.JSONObject;
-
+import codec.RpcProtocol;
+import constants.Constans;
 import model.Response;
 import model.ServerRequest;
+import serialize.Serializer;
+import serialize.SerializerFactory;
+import util.ResponseUtil;
 
 /**
  * Medium 是 RPC 框架中的“中介者”，负责保存服务端的 BeanMethod 映射，
- * 并在收到客户端请求时，通过反射调用对应的服务方法。
+ * 并在收到客户端请求时，调用对应的服务方法。
  *
  * 主要职责：
  * 1. 保存服务映射：
- *    - 使用静态 HashMap<String, BeanMethod> mediamap 存储方法映射关系；
- *    - key 通常是方法名（或接口名+方法名），value 是 BeanMethod（封装了 Bean 实例和 Method 对象）；
+ *    - 使用静态 HashMap<String, BeanMethod> mediamap 按方法签名存储映射关系，
+ *      签名形如 UserRemote.saveUser(User)，重载方法不会互相覆盖；
+ *    - 同时为每个签名分配一个整数方法id，methods 数组的下标就是方法id，
+ *      客户端握手拿到方法表后，请求只携带方法id，查找只需一次数组访问；
  *    - 这些映射由 InitMedium 在 Spring 启动时扫描 @Remote 注解自动填充。
  *
  * 2. 处理客户端请求：
  *    - process(ServerRequest request) 方法是真正的远程调用入口；
- *    - 根据 request.getCommand() 从 mediamap 中找到对应的 BeanMethod；
- *    - 使用 FastJSON 将请求参数反序列化为目标方法需要的参数对象；
- *    - 通过反射调用目标方法，并将结果封装为 Response 返回。
+ *    - 根据 request.getMethodId() 从 methods 中找到对应的 BeanMethod（没有id时按签名查找）；
+ *    - 按请求帧中的序列化方式，把参数的原始字节按位置直接反序列化为目标方法各参数的泛型类型（只解析一次），支持无参和多参方法；
+ *    - 通过 InitMedium 预先生成的 MethodInvoker 调用目标方法，并将结果封装为 Response 返回；
+ *    - 方法返回 CompletionStage（例如 CompletableFuture&lt;Response&gt;）时，invoke() 原样返回，
+ *      由 ServerHandler 在它完成时写回响应，等待期间不占用业务线程；
+ *    - 方法返回 Iterator&lt;T&gt; 时同样原样返回，由 ServerTask 按客户端的额度逐个写出元素（流式响应）；
+ *    - 方法抛出异常、异步失败或找不到方法时返回 code 为 66666 的失败响应，客户端不必等到超时；
+ *    - 调用前检查请求携带的截止时间，客户端已经超时的请求不再执行。
  *
  * 3. 单例模式：
  *    - 使用懒汉式单例（newInstance）保证只有一个 Medium 实例；
@@ -38,6 +55,7 @@ import model.ServerRequest;
 
 public class Medium {
 	public static final HashMap<String, BeanMethod> mediamap = new HashMap<String,BeanMethod>();
+	private static volatile BeanMethod[] methods = new BeanMethod[0];
 	private static Medium media = null;
 	
 	
@@ -51,28 +69,145 @@ public class Medium {
 		return media;
 	}
 	
+	/**
+	 * 注册一个方法并分配方法id，同一个实现方法重复注册时沿用原来的id。
+	 * 签名只用简单类名，不同包中同名的接口或参数类型会得到相同的签名，
+	 * 这时直接抛出 IllegalStateException，而不是让后注册的方法悄悄覆盖前一个。
+	 */
+	public static synchronized int register(BeanMethod beanMethod){
+		BeanMethod old = mediamap.get(beanMethod.getSignature());
+		if(old != null && !old.getMethod().equals(beanMethod.getMethod())){
+			throw new IllegalStateException("方法签名冲突:"+beanMethod.getSignature()+"，"
+					+old.getMethod().toGenericString()+" 与 "+beanMethod.getMethod().toGenericString());
+		}
+		BeanMethod[] table;
+		if(old != null){
+			beanMethod.setId(old.getId());
+			table = methods.clone();
+		}else{
+			beanMethod.setId(methods.length);
+			table = Arrays.copyOf(methods, methods.length + 1);
+		}
+		table[beanMethod.getId()] = beanMethod;
+		mediamap.put(beanMethod.getSignature(), beanMethod);
+		methods = table;
+		return beanMethod.getId();
+	}
+	
+	/**
+	 * @return 按方法id排列的方法签名，握手时发送给客户端
+	 */
+	public static String[] signatures(){
+		BeanMethod[] table = methods;
+		String[] signatures = new String[table.length];
+		for(int i=0;i<table.length;i++){
+			signatures[i] = table[i].getSignature();
+		}
+		return signatures;
+	}
+	
+	public static BeanMethod lookup(ServerRequest request){
+		int id = request.getMethodId();
+		if(id == RpcProtocol.UNKNOWN_METHOD){
+			return mediamap.get(request.getCommand());
+		}
+		BeanMethod[] table = methods;
+		return id >= 0 && id < table.length ? table[id] : null;
+	}
+	
+	/**
+	 * 方法签名：接口简单类名.方法名(参数简单类名,...)，两端包名不同也能对上
+	 */
+	public static String signature(Class<?> service, Method method){
+		StringBuilder sb = new StringBuilder(service.getSimpleName()).append('.').append(method.getName()).append('(');
+		Class<?>[] types = method.getParameterTypes();
+		for(int i=0;i<types.length;i++){
+			if(i > 0){
+				sb.append(',');
+			}
+			sb.append(types[i].getSimpleName());
+		}
+		return sb.append(')').toString();
+	}
+	
 	public Response process(ServerRequest request){
-		Response result = null;
+		return process(request, lookup(request));
+	}
+	
+	/**
+	 * 同步处理，异步方法会等待其完成，流式方法的元素收集成 List 一次返回。
+	 * @param beanMethod I/O 线程上已经查找好的目标方法，可以为 null
+	 */
+	public Response process(ServerRequest request, BeanMethod beanMethod){
+		Object result = invoke(request, beanMethod);
+		if(result instanceof CompletionStage){
+			try {
+				return toResponse(request, ((CompletionStage<?>) result).toCompletableFuture().get());
+			} catch (Throwable e) {
+				return failure(request, e);
+			}
+		}
+		if(result instanceof Iterator){
+			List<Object> list = new ArrayList<Object>();
+			try {
+				for(Iterator<?> it = (Iterator<?>) result; it.hasNext();){
+					list.add(it.next());
+				}
+			} catch (Throwable e) {
+				return failure(request, e);
+			}
+			return toResponse(request, list);
+		}
+		return (Response) result;
+	}
+	
+	/**
+	 * 调用目标方法。
+	 * @return 请求已过期时为 null；方法返回 CompletionStage 或 Iterator 时原样返回；
+	 *         否则为 Response，找不到方法时是 66666 的失败响应
+	 */
+	public Object invoke(ServerRequest request, BeanMethod beanMethod){
+		if(beanMethod == null){
+			//方法id过期或两端签名对不上，明确告诉调用方，而不是让它等到超时
+			Response response = ResponseUtil.createFailResponse(Constans.ERROR, "找不到方法:"
+					+(request.getMethodId() == RpcProtocol.UNKNOWN_METHOD ? request.getCommand() : "id="+request.getMethodId()));
+			response.setId(request.getId());
+			return response;
+		}
 		try {
-			String command = request.getCommand();//command是key
-			BeanMethod beanMethod = mediamap.get(command);
-			if(beanMethod == null){
-				return null;
+			//按参数的泛型类型一次还原全部参数，参数按位置排列
+			Serializer serializer = SerializerFactory.get(request.getSerializer());
+			Object[] args = serializer.deserializeArgs(request.getContent(), beanMethod.getParameterTypes());
+			if(request.isExpired()){
+				return null;//调用方已经超时，不再执行
 			}
 			
-			Object bean = beanMethod.getBean();
-			Method method = beanMethod.getMethod();
-			Class type = method.getParameterTypes()[0];//先只实现1个参数的方法
-			Object content = request.getContent();
-			Object args = JSONObject.parseObject(JSONObject.toJSONString(content), type);
-			
-			result = (Response) method.invoke(bean, args);
-			result.setId(request.getId());
-		} catch (Exception e) {
-			e.printStackTrace();
+			Object result = beanMethod.getInvoker().invoke(args);
+			if(result instanceof CompletionStage || result instanceof Iterator){
+				return result;
+			}
+			return toResponse(request, result);
+		} catch (Throwable e) {
+			return failure(request, e);
 		}
-		
-		return result;
-		
+	}
+	
+	/**
+	 * 方法返回值转换为 Response：本身是 Response 直接使用，否则作为 result 包装成成功响应。
+	 */
+	public static Response toResponse(ServerRequest request, Object value){
+		Response response = value instanceof Response ? (Response) value : ResponseUtil.createSuccessResponse(value);
+		response.setId(request.getId());
+		return response;
+	}
+	
+	public static Response failure(ServerRequest request, Throwable e){
+		while((e instanceof CompletionException || e instanceof ExecutionException) && e.getCause() != null){
+			e = e.getCause();
+		}
+		e.printStackTrace();
+		Response response = ResponseUtil.createFailResponse(Constans.ERROR, e.toString());
+		response.setId(request.getId());
+		return response;
 	}
 }
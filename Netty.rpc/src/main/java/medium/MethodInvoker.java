@@ -0,0 +1,12 @@
+package medium;
+
+/**
+ * MethodInvoker 是预先绑定到某个 Bean 实例和方法上的调用器，
+ * 由 {@link MethodInvokers} 在 InitMedium 注册服务时生成并保存在 BeanMethod 中。
+ *
+ * 与 Method.invoke 相比没有每次调用的访问检查，目标方法抛出的异常也不会被包装成
+ * InvocationTargetException。
+ */
+public interface MethodInvoker {
+	Object invoke(Object[] args) throws Throwable;
+}
@@ -0,0 +1,116 @@
+package medium;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * MethodInvokers 负责为服务方法生成 {@link MethodInvoker}。
+ *
+ * 生成策略：
+ * 1. 0~3 个参数的 public 方法：通过 LambdaMetafactory 生成直接调用目标方法的类，
+ *    效果等同于手写 (bean, a) -> bean.saveUser((User) a)，JIT 可以内联；
+ * 2. 参数更多或返回 void 的 public 方法：使用绑定了 Bean 并展开参数数组的 MethodHandle；
+ * 3. 其它情况（非 public 方法、生成失败）：退回到反射调用。
+ */
+public class MethodInvokers {
+
+	interface Fn0 { Object apply(Object bean); }
+	interface Fn1 { Object apply(Object bean, Object a0); }
+	interface Fn2 { Object apply(Object bean, Object a0, Object a1); }
+	interface Fn3 { Object apply(Object bean, Object a0, Object a1, Object a2); }
+
+	private MethodInvokers(){}
+
+	public static MethodInvoker create(final Object bean, final Method method) {
+		if(Modifier.isPublic(method.getModifiers()) && Modifier.isPublic(method.getDeclaringClass().getModifiers())){
+			try {
+				return generate(bean, method);
+			} catch (Throwable e) {
+				System.out.println("生成调用器失败,使用反射调用:"+method+" "+e);
+			}
+		}
+		return reflective(bean, method);
+	}
+
+	/**
+	 * 反射调用，仅作为兜底方案（也用于与生成的调用器做性能对比）。
+	 */
+	public static MethodInvoker reflective(final Object bean, final Method method) {
+		method.setAccessible(true);
+		return new MethodInvoker() {
+			@Override
+			public Object invoke(Object[] args) throws Throwable {
+				try {
+					return method.invoke(bean, args);
+				} catch (java.lang.reflect.InvocationTargetException e) {
+					throw e.getTargetException();
+				}
+			}
+		};
+	}
+
+	private static MethodInvoker generate(final Object bean, Method method) throws Throwable {
+		MethodHandles.Lookup lookup = MethodHandles.lookup();
+		MethodHandle handle = lookup.unreflect(method);
+		int arity = method.getReturnType() == void.class ? -1 : method.getParameterCount();
+		switch (arity) {
+		case 0:
+			final Fn0 fn0 = (Fn0) lambda(lookup, handle, Fn0.class);
+			return new MethodInvoker() {
+				@Override
+				public Object invoke(Object[] args) {
+					return fn0.apply(bean);
+				}
+			};
+		case 1:
+			final Fn1 fn1 = (Fn1) lambda(lookup, handle, Fn1.class);
+			return new MethodInvoker() {
+				@Override
+				public Object invoke(Object[] args) {
+					return fn1.apply(bean, args[0]);
+				}
+			};
+		case 2:
+			final Fn2 fn2 = (Fn2) lambda(lookup, handle, Fn2.class);
+			return new MethodInvoker() {
+				@Override
+				public Object invoke(Object[] args) {
+					return fn2.apply(bean, args[0], args[1]);
+				}
+			};
+		case 3:
+			final Fn3 fn3 = (Fn3) lambda(lookup, handle, Fn3.class);
+			return new MethodInvoker() {
+				@Override
+				public Object invoke(Object[] args) {
+					return fn3.apply(bean, args[0], args[1], args[2]);
+				}
+			};
+		default:
+			final MethodHandle spread = handle.bindTo(bean)
+					.asSpreader(Object[].class, method.getParameterCount())
+					.asType(MethodType.methodType(Object.class, Object[].class));
+			return new MethodInvoker() {
+				@Override
+				public Object invoke(Object[] args) throws Throwable {
+					return spread.invokeExact(args);
+				}
+			};
+		}
+	}
+
+	//把目标方法适配成函数式接口：参数和返回值按需做类型转换、装箱/拆箱
+	private static Object lambda(MethodHandles.Lookup lookup, MethodHandle handle, Class<?> fn) throws Throwable {
+		Method sam = fn.getDeclaredMethods()[0];
+		MethodType samType = MethodType.methodType(sam.getReturnType(), sam.getParameterTypes());
+		MethodType instantiated = handle.type().wrap().changeReturnType(Object.class);
+		CallSite site = LambdaMetafactory.metafactory(lookup, sam.getName(), MethodType.methodType(fn),
+				samType, handle, instantiated);
+		return site.getTarget().invoke();
+	}
+}
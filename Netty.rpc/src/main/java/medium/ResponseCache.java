@@ -0,0 +1,137 @@
+package medium;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import codec.EncodedResponse;
+import constants.Constans;
+import model.Response;
+import model.ServerRequest;
+import serialize.Serializer;
+import serialize.SerializerFactory;
+
+/**
+ * ResponseCache 是单个方法的服务端响应缓存，由方法上的 @CacheResult 开启。
+ *
+ * - 缓存 key：序列化方式 + 参数的原始字节（每个方法一个缓存，方法id 已经隐含在内），
+ *   请求参数不用反序列化就能查找；
+ * - 缓存 value：序列化好的 Response 字节，命中时在 I/O 线程上直接写出 EncodedResponse，
+ *   跳过线程切换、方法调用和序列化；
+ * - 淘汰：超过 ttl 的条目在读取时丢弃；条目数超过 maxSize 时按 LRU 淘汰（access-order 的 LinkedHashMap）。
+ *
+ * 只缓存成功（code 为 00000）的响应，hits()/misses() 提供命中统计。
+ */
+public class ResponseCache {
+	private final long ttl;
+	private final LinkedHashMap<Key, Entry> entries;
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	//参数字节的哈希只算一次
+	static final class Key {
+		private final byte serializer;
+		private final byte[] args;
+		private final int hash;
+
+		Key(byte serializer, byte[] args) {
+			this.serializer = serializer;
+			this.args = args == null ? new byte[0] : args;
+			this.hash = 31 * serializer + Arrays.hashCode(this.args);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if(!(obj instanceof Key)){
+				return false;
+			}
+			Key other = (Key) obj;
+			return hash == other.hash && serializer == other.serializer && Arrays.equals(args, other.args);
+		}
+	}
+
+	static final class Entry {
+		final byte[] body;
+		final long expires;
+
+		Entry(byte[] body, long expires) {
+			this.body = body;
+			this.expires = expires;
+		}
+	}
+
+	public ResponseCache(long ttlMillis, final int maxSize) {
+		this.ttl = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+		this.entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true){
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+				return size() > maxSize;
+			}
+		};
+	}
+
+	/**
+	 * 查找缓存的响应。
+	 * @return 命中时返回可以直接写出的响应，未命中或已过期时为 null
+	 */
+	public EncodedResponse get(ServerRequest request) {
+		Key key = new Key(request.getSerializer(), request.getContent());
+		Entry entry;
+		synchronized (entries) {
+			entry = entries.get(key);
+			if(entry != null && System.nanoTime() - entry.expires > 0){
+				entries.remove(key);
+				entry = null;
+			}
+		}
+		if(entry == null){
+			misses.incrementAndGet();
+			return null;
+		}
+		hits.incrementAndGet();
+		return new EncodedResponse(request.getId(), request.getSerializer(), entry.body);
+	}
+
+	/**
+	 * 序列化方法的响应，成功的响应放入缓存。
+	 * @return 序列化后的响应，由 RpcEncoder 只补帧头写出
+	 */
+	public EncodedResponse put(ServerRequest request, Response response) {
+		Serializer serializer = SerializerFactory.get(request.getSerializer());
+		if(serializer == null){
+			serializer = SerializerFactory.getDefault();
+		}
+		byte[] body = serializer.serialize(response, Response.class);
+		if(Constans.SUCCESS.equals(response.getCode())){
+			Key key = new Key(request.getSerializer(), request.getContent());
+			Entry entry = new Entry(body, System.nanoTime() + ttl);
+			synchronized (entries) {
+				entries.put(key, entry);
+			}
+		}
+		return new EncodedResponse(request.getId(), serializer.getId(), body);
+	}
+
+	public long hits() {
+		return hits.get();
+	}
+
+	public long misses() {
+		return misses.get();
+	}
+
+	public int size() {
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+}
@@ -1,13 +1,27 @@
 package model;
 
+import java.lang.reflect.Type;
 import java.util.concurrent.atomic.AtomicLong;
 
+import serialize.SerializerFactory;
+
 public class ClientRequest {
-	private Long id ;
-	private Object content;//方法参数
+	private transient Long id ;//放在帧头中传输
+	private Object[] content;//方法参数，按位置排列，无参方法为空数组
+	private transient Type[] contentTypes;//各参数的声明类型（含泛型），序列化时使用
 	private static AtomicLong realID = new AtomicLong(0);
-	private String command;//media.map里的key
+	private String command;//方法签名，例如 UserRemote.saveUser(User)
+	private transient byte serializer = SerializerFactory.getDefault().getId();//序列化方式，放在帧头中传输
+	
 	
+	public byte getSerializer() {
+		return serializer;
+	}
+
+	public void setSerializer(byte serializer) {
+		this.serializer = serializer;
+	}
+
 	
 	public String getCommand() {
 		return command;
@@ -21,14 +35,22 @@ public class ClientRequest {
 		id =  realID.incrementAndGet();
 	}
 
-	public Object getContent() {
+	public Object[] getContent() {
 		return content;
 	}
 
-	public void setContent(Object content) {
+	public void setContent(Object... content) {
 		this.content = content;
 	}
 	
+	public Type[] getContentTypes() {
+		return contentTypes;
+	}
+
+	public void setContentTypes(Type[] contentTypes) {
+		this.contentTypes = contentTypes;
+	}
+	
 	public Long getId() {
 		return id;
 	}
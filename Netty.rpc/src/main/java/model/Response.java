@@ -1,11 +1,19 @@
 package model;
 
 public class Response {
-	private Long id;
+	private transient Long id;//放在帧头中传输
 	private Object result;
 	private String code = "00000";//00000表示成功，其他表示失败
 	private String msg;//失败信息
+	private transient byte serializer;//响应使用的序列化方式，与请求一致
 	
+	public byte getSerializer() {
+		return serializer;
+	}
+	public void setSerializer(byte serializer) {
+		this.serializer = serializer;
+	}
+
 	public String getCode() {
 		return code;
 	}
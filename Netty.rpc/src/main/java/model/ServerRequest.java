@@ -1,10 +1,39 @@
 package model;
 
 public class ServerRequest {
-	private Long id;
-	private Object content;
-	private String command;//media.map里的key
+	private transient Long id;//放在帧头中传输
+	private byte[] content;//方法参数的原始字节，由Medium按目标方法的参数类型反序列化
+	private String command;//方法签名，只有客户端还不知道方法id时才会携带
+	private int methodId;//握手时服务端分配的方法id
+	private transient byte serializer;//请求使用的序列化方式，响应沿用同一种
+	private transient long deadline;//截止时间（System.nanoTime），0 表示不限
 	
+	public byte getSerializer() {
+		return serializer;
+	}
+	public void setSerializer(byte serializer) {
+		this.serializer = serializer;
+	}
+
+	public long getDeadline() {
+		return deadline;
+	}
+	public void setDeadline(long deadline) {
+		this.deadline = deadline;
+	}
+	/**
+	 * @return 客户端是否已经放弃等待这个请求
+	 */
+	public boolean isExpired() {
+		return deadline != 0 && System.nanoTime() - deadline > 0;
+	}
+
+	public int getMethodId() {
+		return methodId;
+	}
+	public void setMethodId(int methodId) {
+		this.methodId = methodId;
+	}
 	public String getCommand() {
 		return command;
 	}
@@ -17,10 +46,10 @@ public class ServerRequest {
 	public void setId(Long id) {
 		this.id = id;
 	}
-	public Object getContent() {
+	public byte[] getContent() {
 		return content;
 	}
-	public void setContent(Object content) {
+	public void setContent(byte[] content) {
 		this.content = content;
 	}
 	
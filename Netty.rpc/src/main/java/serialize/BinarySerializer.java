@@ -0,0 +1,627 @@
+package serialize;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.lang.reflect.WildcardType;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+
+import codec.RpcProtocol;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+
+/**
+ * BinarySerializer 是紧凑的二进制序列化实现。
+ *
+ * 编码规则：
+ * - 每个值以 1 字节类型标记开头，整数使用 zigzag + varint，字符串为 varint 长度 + UTF-8；
+ * - 声明类型与实际类型一致的 Bean（例如参数 User）按字段名排序后只写字段值，不写字段名；
+ * - 声明类型为 Object 等无法确定类型的位置（例如 Response.result）写成“字段名 + 值”的自描述结构，
+ *   读取端没有目标类型时还原为 JSONObject / JSONArray，与 JSON 序列化得到的形状一致；
+ * - transient 和 static 字段不参与序列化。
+ *
+ * 约束：两端按字段名对齐，因此 Bean 的字段名和类型需要一致（与 JSON 方式的要求相同），
+ * 类名和包名可以不同。
+ */
+public class BinarySerializer implements Serializer {
+	static final int NULL = 0;
+	static final int TRUE = 1;
+	static final int FALSE = 2;
+	static final int INT = 3;
+	static final int LONG = 4;
+	static final int FLOAT = 5;
+	static final int DOUBLE = 6;
+	static final int STRING = 7;
+	static final int BYTES = 8;
+	static final int LIST = 9;
+	static final int MAP = 10;
+	static final int BEAN = 11;//按字段名排序、省略字段名
+	static final int OBJECT = 12;//带字段名的自描述结构
+
+	private static final int SCRATCH_SIZE = 1024;
+	private static final ThreadLocal<byte[]> SCRATCH = new ThreadLocal<byte[]>(){
+		@Override
+		protected byte[] initialValue() {
+			return new byte[SCRATCH_SIZE];
+		}
+	};
+	private static final ConcurrentHashMap<Class<?>, BeanInfo> beans = new ConcurrentHashMap<Class<?>, BeanInfo>();
+
+	@Override
+	public byte getId() {
+		return RpcProtocol.SERIALIZER_BINARY;
+	}
+
+	@Override
+	public String getName() {
+		return "binary";
+	}
+
+	@Override
+	public byte[] serialize(Object obj, Type type) {
+		ByteBuf out = Unpooled.buffer();
+		try {
+			writeValue(out, obj, type);
+			byte[] bytes = new byte[out.readableBytes()];
+			out.readBytes(bytes);
+			return bytes;
+		} finally {
+			out.release();
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public <T> T deserialize(byte[] bytes, Type type) {
+		return (T) readValue(Unpooled.wrappedBuffer(bytes), type);
+	}
+
+	@Override
+	public void serialize(Object obj, Type type, ByteBuf out) {
+		writeValue(out, obj, type);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public <T> T deserialize(ByteBuf in, Type type) {
+		return (T) readValue(in, type);
+	}
+
+	@Override
+	public byte[] serializeArgs(Object[] args, Type[] types) {
+		ByteBuf out = Unpooled.buffer();
+		try {
+			serializeArgs(args, types, out);
+			byte[] bytes = new byte[out.readableBytes()];
+			out.readBytes(bytes);
+			return bytes;
+		} finally {
+			out.release();
+		}
+	}
+
+	//参数个数(varint) + 按声明类型依次写出的参数
+	@Override
+	public void serializeArgs(Object[] args, Type[] types, ByteBuf out) {
+		writeVarInt(out, args.length);
+		for(int i=0;i<args.length;i++){
+			writeValue(out, args[i], types[i]);
+		}
+	}
+
+	@Override
+	public Object[] deserializeArgs(byte[] bytes, Type[] types) {
+		ByteBuf in = Unpooled.wrappedBuffer(bytes);
+		int count = readVarInt(in);
+		if(count != types.length){
+			throw new IllegalArgumentException("参数个数不匹配，期望"+types.length+"个，实际"+count+"个");
+		}
+		Object[] args = new Object[count];
+		for(int i=0;i<count;i++){
+			args[i] = readValue(in, types[i]);
+		}
+		return args;
+	}
+
+	//------------------------------------------------------------------ 写
+
+	static void writeValue(ByteBuf out, Object value, Type declared) {
+		if(value == null){
+			out.writeByte(NULL);
+		}else if(value instanceof String){
+			out.writeByte(STRING);
+			writeString(out, (String) value);
+		}else if(value instanceof Integer || value instanceof Short || value instanceof Byte){
+			out.writeByte(INT);
+			writeVarLong(out, zigzag(((Number) value).longValue()));
+		}else if(value instanceof Long){
+			out.writeByte(LONG);
+			writeVarLong(out, zigzag((Long) value));
+		}else if(value instanceof Boolean){
+			out.writeByte((Boolean) value ? TRUE : FALSE);
+		}else if(value instanceof Double){
+			out.writeByte(DOUBLE);
+			out.writeDouble((Double) value);
+		}else if(value instanceof Float){
+			out.writeByte(FLOAT);
+			out.writeFloat((Float) value);
+		}else if(value instanceof Character){
+			out.writeByte(STRING);
+			writeString(out, value.toString());
+		}else if(value instanceof byte[]){
+			byte[] bytes = (byte[]) value;
+			out.writeByte(BYTES);
+			writeVarInt(out, bytes.length);
+			out.writeBytes(bytes);
+		}else if(value instanceof Enum){
+			out.writeByte(STRING);
+			writeString(out, ((Enum<?>) value).name());
+		}else if(value instanceof Date){
+			out.writeByte(LONG);
+			writeVarLong(out, zigzag(((Date) value).getTime()));
+		}else if(value instanceof BigDecimal || value instanceof BigInteger){
+			out.writeByte(STRING);
+			writeString(out, value.toString());
+		}else if(value instanceof Collection){
+			Collection<?> list = (Collection<?>) value;
+			Type element = typeArgument(declared, 0);
+			out.writeByte(LIST);
+			writeVarInt(out, list.size());
+			for(Object o : list){
+				writeValue(out, o, element);
+			}
+		}else if(value.getClass().isArray()){
+			Type element = value.getClass().getComponentType();
+			int length = Array.getLength(value);
+			out.writeByte(LIST);
+			writeVarInt(out, length);
+			for(int i=0;i<length;i++){
+				writeValue(out, Array.get(value, i), element);
+			}
+		}else if(value instanceof Map){
+			Map<?, ?> map = (Map<?, ?>) value;
+			Type keyType = typeArgument(declared, 0);
+			Type valueType = typeArgument(declared, 1);
+			out.writeByte(MAP);
+			writeVarInt(out, map.size());
+			for(Map.Entry<?, ?> entry : map.entrySet()){
+				writeValue(out, entry.getKey(), keyType);
+				writeValue(out, entry.getValue(), valueType);
+			}
+		}else{
+			writeBean(out, value, rawClass(declared) == value.getClass());
+		}
+	}
+
+	private static void writeBean(ByteBuf out, Object bean, boolean typed) {
+		BeanInfo info = beanInfo(bean.getClass());
+		out.writeByte(typed ? BEAN : OBJECT);
+		writeVarInt(out, info.fields.length);
+		try {
+			for(Field field : info.fields){
+				if(!typed){
+					writeString(out, field.getName());
+				}
+				writeValue(out, field.get(bean), field.getGenericType());
+			}
+		} catch (IllegalAccessException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	//先算出 UTF-8 长度写入前缀，再由 ByteBufUtil 直接编码进 out，不生成中间的 byte[]
+	static void writeString(ByteBuf out, String s) {
+		int length = utf8Length(s);
+		if(length < 0){
+			//含不成对的代理字符，按 JDK 的替换规则编码
+			byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+			writeVarInt(out, bytes.length);
+			out.writeBytes(bytes);
+			return;
+		}
+		writeVarInt(out, length);
+		ByteBufUtil.writeUtf8(out, s);
+	}
+
+	//UTF-8 编码后的字节数，含不成对的代理字符时返回 -1
+	static int utf8Length(String s) {
+		int length = s.length();
+		int bytes = length;
+		for(int i=0;i<length;i++){
+			char c = s.charAt(i);
+			if(c < 0x80){
+				continue;
+			}
+			if(c < 0x800){
+				bytes += 1;
+			}else if(!Character.isSurrogate(c)){
+				bytes += 2;
+			}else if(Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))){
+				bytes += 2;//代理对共 4 个字节
+				i++;
+			}else{
+				return -1;
+			}
+		}
+		return bytes;
+	}
+
+	static void writeVarInt(ByteBuf out, int value) {
+		writeVarLong(out, value & 0xFFFFFFFFL);
+	}
+
+	static void writeVarLong(ByteBuf out, long value) {
+		while((value & ~0x7FL) != 0){
+			out.writeByte((int) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		out.writeByte((int) value);
+	}
+
+	private static long zigzag(long n) {
+		return (n << 1) ^ (n >> 63);
+	}
+
+	//------------------------------------------------------------------ 读
+
+	static Object readValue(ByteBuf in, Type type) {
+		int tag = in.readByte();
+		Class<?> raw = rawClass(type);
+		switch (tag) {
+		case NULL:
+			return raw.isPrimitive() ? defaultValue(raw) : null;
+		case TRUE:
+			return Boolean.TRUE;
+		case FALSE:
+			return Boolean.FALSE;
+		case INT:
+			return toNumber(unzigzag(readVarLong(in)), raw, true);
+		case LONG:
+			return toNumber(unzigzag(readVarLong(in)), raw, false);
+		case FLOAT:
+			return toDecimal(in.readFloat(), raw, true);
+		case DOUBLE:
+			return toDecimal(in.readDouble(), raw, false);
+		case STRING:
+			return toText(readString(in), raw);
+		case BYTES:
+			byte[] bytes = new byte[readLength(in)];
+			in.readBytes(bytes);
+			return bytes;
+		case LIST:
+			return readList(in, type, raw);
+		case MAP:
+			return readMap(in, type, raw);
+		case BEAN:
+			return readBean(in, raw);
+		case OBJECT:
+			return readObject(in, raw);
+		default:
+			throw new IllegalStateException("未知的类型标记:"+tag);
+		}
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static Object readList(ByteBuf in, Type type, Class<?> raw) {
+		int size = readCount(in);
+		if(raw.isArray()){
+			//先读入 List，数组按实际读到的元素个数分配
+			Class<?> component = raw.getComponentType();
+			List values = new ArrayList();
+			for(int i=0;i<size;i++){
+				values.add(readValue(in, component));
+			}
+			Object array = Array.newInstance(component, values.size());
+			for(int i=0;i<values.size();i++){
+				Array.set(array, i, values.get(i));
+			}
+			return array;
+		}
+		Type element = typeArgument(type, 0);
+		Collection list;
+		if(raw == Object.class || raw.isAssignableFrom(JSONArray.class)){
+			list = new JSONArray();
+		}else if(raw.isInterface() || Modifier.isAbstract(raw.getModifiers())){
+			if(SortedSet.class.isAssignableFrom(raw)){
+				list = new TreeSet();
+			}else if(Set.class.isAssignableFrom(raw)){
+				list = new LinkedHashSet();
+			}else{
+				list = new ArrayList();
+			}
+		}else{
+			list = (Collection) newInstance(raw);
+		}
+		for(int i=0;i<size;i++){
+			list.add(readValue(in, element));
+		}
+		return list;
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static Object readMap(ByteBuf in, Type type, Class<?> raw) {
+		int size = readCount(in);
+		if(raw != Object.class && !Map.class.isAssignableFrom(raw)){
+			//对端把Bean当作Map发送，按字段名填充
+			return fillBean(in, raw, size, true);
+		}
+		Type keyType = typeArgument(type, 0);
+		Type valueType = typeArgument(type, 1);
+		Map map;
+		if(raw == Object.class || raw.isAssignableFrom(JSONObject.class)){
+			map = new JSONObject();
+		}else if(raw.isInterface() || Modifier.isAbstract(raw.getModifiers())){
+			map = SortedMap.class.isAssignableFrom(raw) ? new TreeMap() : new HashMap();
+		}else{
+			map = (Map) newInstance(raw);
+		}
+		for(int i=0;i<size;i++){
+			Object key = readValue(in, keyType);
+			map.put(key, readValue(in, valueType));
+		}
+		return map;
+	}
+
+	private static Object readBean(ByteBuf in, Class<?> raw) {
+		int size = readCount(in);
+		BeanInfo info = beanInfo(raw);
+		if(info.fields.length != size){
+			throw new IllegalStateException(raw.getName()+"字段数不一致,本端:"+info.fields.length+",对端:"+size);
+		}
+		Object bean = newInstance(raw);
+		try {
+			for(Field field : info.fields){
+				field.set(bean, readValue(in, field.getGenericType()));
+			}
+		} catch (IllegalAccessException e) {
+			throw new IllegalStateException(e);
+		}
+		return bean;
+	}
+
+	private static Object readObject(ByteBuf in, Class<?> raw) {
+		int size = readCount(in);
+		if(raw == Object.class || Map.class.isAssignableFrom(raw)){
+			JSONObject object = new JSONObject();
+			for(int i=0;i<size;i++){
+				String name = readString(in);
+				object.put(name, readValue(in, Object.class));
+			}
+			return object;
+		}
+		return fillBean(in, raw, size, false);
+	}
+
+	private static Object fillBean(ByteBuf in, Class<?> raw, int size, boolean taggedKey) {
+		BeanInfo info = beanInfo(raw);
+		Object bean = newInstance(raw);
+		try {
+			for(int i=0;i<size;i++){
+				String name = taggedKey ? String.valueOf(readValue(in, String.class)) : readString(in);
+				Field field = info.byName.get(name);
+				if(field == null){
+					readValue(in, Object.class);//本端没有的字段直接跳过
+				}else{
+					field.set(bean, readValue(in, field.getGenericType()));
+				}
+			}
+		} catch (IllegalAccessException e) {
+			throw new IllegalStateException(e);
+		}
+		return bean;
+	}
+
+	//堆内 ByteBuf 直接从底层数组解码；堆外的先拷贝到线程本地的缓冲区，避免 CharsetDecoder 的中间对象
+	static String readString(ByteBuf in) {
+		int length = readLength(in);
+		String s;
+		if(in.hasArray()){
+			s = new String(in.array(), in.arrayOffset() + in.readerIndex(), length, StandardCharsets.UTF_8);
+		}else{
+			byte[] bytes = length <= SCRATCH_SIZE ? SCRATCH.get() : new byte[length];
+			in.getBytes(in.readerIndex(), bytes, 0, length);
+			s = new String(bytes, 0, length, StandardCharsets.UTF_8);
+		}
+		in.skipBytes(length);
+		return s;
+	}
+
+	//字节数组和字符串的长度：不能超过剩余字节数，避免按损坏或恶意的长度分配内存
+	private static int readLength(ByteBuf in) {
+		int length = readVarInt(in);
+		if(length < 0 || length > in.readableBytes()){
+			throw new IllegalStateException("长度超出剩余字节:"+length+",剩余:"+in.readableBytes());
+		}
+		return length;
+	}
+
+	//元素/字段个数：每个元素至少占一个字节的类型标记，个数不能超过剩余字节数
+	private static int readCount(ByteBuf in) {
+		int count = readVarInt(in);
+		if(count < 0 || count > in.readableBytes()){
+			throw new IllegalStateException("元素个数超出剩余字节:"+count+",剩余:"+in.readableBytes());
+		}
+		return count;
+	}
+
+	static int readVarInt(ByteBuf in) {
+		return (int) readVarLong(in);
+	}
+
+	static long readVarLong(ByteBuf in) {
+		long result = 0;
+		for(int shift=0;shift<64;shift+=7){
+			byte b = in.readByte();
+			result |= (long) (b & 0x7F) << shift;
+			if((b & 0x80) == 0){
+				return result;
+			}
+		}
+		throw new IllegalStateException("varint过长");
+	}
+
+	private static long unzigzag(long n) {
+		return (n >>> 1) ^ -(n & 1);
+	}
+
+	private static Object toNumber(long n, Class<?> raw, boolean isInt) {
+		if(raw == int.class || raw == Integer.class) return (int) n;
+		if(raw == long.class || raw == Long.class) return n;
+		if(raw == short.class || raw == Short.class) return (short) n;
+		if(raw == byte.class || raw == Byte.class) return (byte) n;
+		if(raw == double.class || raw == Double.class) return (double) n;
+		if(raw == float.class || raw == Float.class) return (float) n;
+		if(raw == char.class || raw == Character.class) return (char) n;
+		if(raw == Date.class) return new Date(n);
+		if(raw == BigDecimal.class) return BigDecimal.valueOf(n);
+		if(raw == BigInteger.class) return BigInteger.valueOf(n);
+		if(raw == String.class) return String.valueOf(n);
+		if(isInt){
+			return Integer.valueOf((int) n);//不能写成三元表达式，否则会被提升为Long
+		}
+		return Long.valueOf(n);
+	}
+
+	private static Object toDecimal(double d, Class<?> raw, boolean isFloat) {
+		if(raw == double.class || raw == Double.class) return d;
+		if(raw == float.class || raw == Float.class) return (float) d;
+		if(raw == BigDecimal.class) return BigDecimal.valueOf(d);
+		if(raw == String.class) return String.valueOf(d);
+		if(isFloat){
+			return Float.valueOf((float) d);
+		}
+		return Double.valueOf(d);
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static Object toText(String s, Class<?> raw) {
+		if(raw.isEnum()) return Enum.valueOf((Class<Enum>) raw, s);
+		if(raw == char.class || raw == Character.class) return s.isEmpty() ? '\0' : s.charAt(0);
+		if(raw == BigDecimal.class) return new BigDecimal(s);
+		if(raw == BigInteger.class) return new BigInteger(s);
+		return s;
+	}
+
+	private static Object defaultValue(Class<?> primitive) {
+		if(primitive == boolean.class) return Boolean.FALSE;
+		if(primitive == char.class) return '\0';
+		return toNumber(0, primitive, true);
+	}
+
+	//------------------------------------------------------------------ 类型工具
+
+	static Class<?> rawClass(Type type) {
+		if(type instanceof Class){
+			return (Class<?>) type;
+		}
+		if(type instanceof ParameterizedType){
+			return rawClass(((ParameterizedType) type).getRawType());
+		}
+		if(type instanceof GenericArrayType){
+			return Array.newInstance(rawClass(((GenericArrayType) type).getGenericComponentType()), 0).getClass();
+		}
+		if(type instanceof WildcardType){
+			return rawClass(((WildcardType) type).getUpperBounds()[0]);
+		}
+		if(type instanceof TypeVariable){
+			Type[] bounds = ((TypeVariable<?>) type).getBounds();
+			return bounds.length == 0 ? Object.class : rawClass(bounds[0]);
+		}
+		return Object.class;
+	}
+
+	private static Type typeArgument(Type type, int index) {
+		if(type instanceof ParameterizedType){
+			Type[] args = ((ParameterizedType) type).getActualTypeArguments();
+			if(index < args.length){
+				return args[index];
+			}
+		}
+		return Object.class;
+	}
+
+	private static Object newInstance(Class<?> raw) {
+		try {
+			return beanInfo(raw).constructor.newInstance();
+		} catch (Exception e) {
+			throw new IllegalStateException("无法实例化:"+raw.getName(), e);
+		}
+	}
+
+	private static BeanInfo beanInfo(Class<?> clazz) {
+		BeanInfo info = beans.get(clazz);
+		if(info == null){
+			info = new BeanInfo(clazz);
+			BeanInfo old = beans.putIfAbsent(clazz, info);
+			if(old != null){
+				info = old;
+			}
+		}
+		return info;
+	}
+
+	/**
+	 * 缓存某个类参与序列化的字段（按字段名排序）和无参构造器。
+	 */
+	static class BeanInfo {
+		final Field[] fields;
+		final Map<String, Field> byName = new HashMap<String, Field>();
+		final Constructor<?> constructor;
+
+		BeanInfo(Class<?> clazz) {
+			List<Field> list = new ArrayList<Field>();
+			for(Class<?> c = clazz;c != null && c != Object.class;c = c.getSuperclass()){
+				for(Field field : c.getDeclaredFields()){
+					int modifiers = field.getModifiers();
+					if(Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || byName.containsKey(field.getName())){
+						continue;
+					}
+					field.setAccessible(true);
+					list.add(field);
+					byName.put(field.getName(), field);
+				}
+			}
+			fields = list.toArray(new Field[list.size()]);
+			Arrays.sort(fields, new Comparator<Field>() {
+				@Override
+				public int compare(Field a, Field b) {
+					return a.getName().compareTo(b.getName());
+				}
+			});
+			Constructor<?> c = null;
+			try {
+				c = clazz.getDeclaredConstructor();
+				c.setAccessible(true);
+			} catch (NoSuchMethodException e) {
+				//没有无参构造器的类只能序列化，不能反序列化
+			}
+			constructor = c;
+		}
+	}
+}
@@ -0,0 +1,138 @@
+package Yin.netty.rpc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.alibaba.fastjson.JSON;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import model.Response;
+import model.User;
+import serialize.BinarySerializer;
+import serialize.JsonSerializer;
+import serialize.Serializer;
+import util.ResponseUtil;
+
+public class BinarySerializerTest {
+	private final Serializer serializer = new BinarySerializer();
+
+	@Test
+	public void testTypedBean(){
+		User user = new User();
+		user.setId(1000);
+		user.setName("张三");
+		byte[] bytes = serializer.serialize(user, User.class);
+		User copy = serializer.deserialize(bytes, User.class);
+		
+		assertEquals(user.getId(), copy.getId());
+		assertEquals(user.getName(), copy.getName());
+		assertTrue(bytes.length < JSON.toJSONBytes(user).length);
+	}
+	
+	@Test
+	public void testUntypedResult(){
+		List<User> list = new ArrayList<User>();
+		User user = new User();
+		user.setId(1);
+		user.setName("李四");
+		list.add(user);
+		Response response = ResponseUtil.createSuccessResponse(list);
+		response.setId(99L);
+		
+		Response copy = serializer.deserialize(serializer.serialize(response, Response.class), Response.class);
+		assertEquals(null, copy.getId());//id在帧头中传输
+		assertEquals("00000", copy.getCode());
+		Map<?, ?> first = (Map<?, ?>) ((List<?>) copy.getResult()).get(0);
+		assertEquals(1, first.get("id"));
+		assertEquals("李四", first.get("name"));
+	}
+	
+	@Test
+	public void testArgs() throws Exception{
+		Type[] types = Holder.class.getMethod("update", int.class, List.class, String.class).getGenericParameterTypes();
+		User user = new User();
+		user.setId(7);
+		user.setName("王五");
+		List<User> users = new ArrayList<User>();
+		users.add(user);
+		for(Serializer s : new Serializer[]{serializer, new JsonSerializer()}){
+			Object[] args = s.deserializeArgs(s.serializeArgs(new Object[]{3, users, null}, types), types);
+			assertEquals(3, args.length);
+			assertEquals(3, args[0]);
+			assertEquals("王五", ((User) ((List<?>) args[1]).get(0)).getName());
+			assertEquals(null, args[2]);
+			
+			assertEquals(0, s.deserializeArgs(s.serializeArgs(new Object[0], new Type[0]), new Type[0]).length);
+		}
+	}
+	
+	@Test
+	public void testByteBuf(){
+		for(Serializer s : new Serializer[]{serializer, new JsonSerializer()}){
+			//fastjson 无法编码不成对的代理字符，只有二进制方式覆盖这种情况
+			String[] names = s == serializer ? new String[]{"赵六😀", "bad\uD800"} : new String[]{"赵六😀"};
+			for(String name : names){
+				User user = new User();
+				user.setId(8);
+				user.setName(name);
+				ByteBuf out = PooledByteBufAllocator.DEFAULT.directBuffer();
+				try {
+					s.serialize(user, User.class, out);
+					assertEquals(s.getName(), new String(s.serialize(user, User.class), StandardCharsets.UTF_8), out.toString(StandardCharsets.UTF_8));
+					User copy = s.deserialize(out, User.class);
+					assertEquals(Integer.valueOf(8), copy.getId());
+					assertEquals(new String(name.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8), copy.getName());
+					assertEquals(0, out.readableBytes());
+				} finally {
+					out.release();
+				}
+			}
+		}
+	}
+	
+	@Test
+	public void testCorruptInput(){
+		User user = new User();
+		user.setId(9);
+		user.setName("孙七");
+		byte[] bytes = serializer.serialize(user, User.class);
+		for(int length = 0; length < bytes.length; length++){
+			assertRejected(Arrays.copyOf(bytes, length), User.class);//截断的输入
+		}
+		//声明的长度或个数远大于剩余字节，不能按它分配内存
+		byte[] huge = {(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07};
+		for(int tag : new int[]{7, 8, 9, 10}){//STRING / BYTES / LIST / MAP
+			byte[] corrupt = new byte[huge.length + 1];
+			corrupt[0] = (byte) tag;
+			System.arraycopy(huge, 0, corrupt, 1, huge.length);
+			assertRejected(corrupt, Object.class);
+			assertRejected(corrupt, User[].class);
+		}
+		assertRejected(new byte[]{9, 0x7F, 0}, List.class);//个数大于剩余字节
+		assertRejected(new byte[]{9, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x0F}, List.class);//个数为负
+	}
+	
+	private void assertRejected(byte[] bytes, Type type){
+		try {
+			serializer.deserialize(bytes, type);
+			fail("应拒绝损坏的输入:"+Arrays.toString(bytes));
+		} catch (IllegalStateException | IndexOutOfBoundsException e) {
+			//预期
+		}
+	}
+	
+	interface Holder {
+		void update(int version, List<User> users, String remark);
+	}
+}
@@ -0,0 +1,114 @@
+package Yin.netty.rpc;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import model.Response;
+import model.User;
+import serialize.BinarySerializer;
+import serialize.JsonSerializer;
+import serialize.Serializer;
+import util.ResponseUtil;
+
+/**
+ * 对比响应编解码的两种方式在每次调用上分配的堆内存字节数：
+ * - byte[]  ：先序列化成 byte[] 再拷贝进池化的堆外 ByteBuf，解码时先把帧拷贝成 byte[]；
+ * - ByteBuf ：直接序列化进池化的堆外 ByteBuf，解码时直接从 ByteBuf 读取。
+ * 直接运行 main 即可，通过 com.sun.management.ThreadMXBean 统计当前线程分配的字节数，每轮先预热再计数。
+ */
+public class CodecAllocationBenchmark {
+	private static final int WARMUP = 200000;
+	private static final int ROUNDS = 3;
+	private static final int CALLS = 200000;
+	
+	static Object sink;
+	
+	public static void main(String[] args) {
+		List<User> users = new ArrayList<User>();
+		for(int i=0;i<10;i++){
+			User user = new User();
+			user.setId(i);
+			user.setName("用户"+i);
+			users.add(user);
+		}
+		Response response = ResponseUtil.createSuccessResponse(users);
+		
+		for(Serializer serializer : new Serializer[]{new JsonSerializer(), new BinarySerializer()}){
+			run(serializer, response, WARMUP);
+			for(int i=0;i<ROUNDS;i++){
+				print(serializer.getName()+" encode byte[] ", measureEncodeBytes(serializer, response, CALLS));
+				print(serializer.getName()+" encode ByteBuf", measureEncodeBuf(serializer, response, CALLS));
+				print(serializer.getName()+" decode byte[] ", measureDecodeBytes(serializer, response, CALLS));
+				print(serializer.getName()+" decode ByteBuf", measureDecodeBuf(serializer, response, CALLS));
+			}
+		}
+	}
+	
+	private static void run(Serializer serializer, Response response, int calls) {
+		measureEncodeBytes(serializer, response, calls);
+		measureEncodeBuf(serializer, response, calls);
+		measureDecodeBytes(serializer, response, calls);
+		measureDecodeBuf(serializer, response, calls);
+	}
+	
+	private static long measureEncodeBytes(Serializer serializer, Response response, int calls) {
+		long start = allocated();
+		for(int i=0;i<calls;i++){
+			ByteBuf out = PooledByteBufAllocator.DEFAULT.directBuffer();
+			out.writeBytes(serializer.serialize(response, Response.class));
+			out.release();
+		}
+		return allocated() - start;
+	}
+	
+	private static long measureEncodeBuf(Serializer serializer, Response response, int calls) {
+		long start = allocated();
+		for(int i=0;i<calls;i++){
+			ByteBuf out = PooledByteBufAllocator.DEFAULT.directBuffer();
+			serializer.serialize(response, Response.class, out);
+			out.release();
+		}
+		return allocated() - start;
+	}
+	
+	private static long measureDecodeBytes(Serializer serializer, Response response, int calls) {
+		ByteBuf frame = encoded(serializer, response);
+		long start = allocated();
+		for(int i=0;i<calls;i++){
+			byte[] body = new byte[frame.readableBytes()];
+			frame.getBytes(frame.readerIndex(), body);
+			sink = serializer.deserialize(body, Response.class);
+		}
+		long cost = allocated() - start;
+		frame.release();
+		return cost;
+	}
+	
+	private static long measureDecodeBuf(Serializer serializer, Response response, int calls) {
+		ByteBuf frame = encoded(serializer, response);
+		long start = allocated();
+		for(int i=0;i<calls;i++){
+			sink = serializer.deserialize(frame.duplicate(), Response.class);
+		}
+		long cost = allocated() - start;
+		frame.release();
+		return cost;
+	}
+	
+	private static ByteBuf encoded(Serializer serializer, Response response) {
+		ByteBuf frame = PooledByteBufAllocator.DEFAULT.directBuffer();
+		serializer.serialize(response, Response.class, frame);
+		return frame;
+	}
+	
+	private static long allocated() {
+		return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+	
+	private static void print(String name, long bytes) {
+		System.out.println(name+": "+(bytes / CALLS)+" B/op");
+	}
+}
@@ -0,0 +1,66 @@
+package Yin.netty.rpc;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+
+import Remote.UserRemoteImpl;
+import medium.MethodInvoker;
+import medium.MethodInvokers;
+import model.User;
+import service.UserService;
+
+/**
+ * 对比反射调用与 MethodInvokers 生成的调用器在 UserRemoteImpl.saveUser 上的分派开销。
+ * 直接运行 main 即可，每轮先预热再计时，输出每次调用的平均纳秒数。
+ * 两种调用器各用一个独立的循环方法，避免共用调用点导致 JIT 的类型信息互相干扰。
+ */
+public class MethodInvokerBenchmark {
+	private static final int WARMUP = 2000000;
+	private static final int ROUNDS = 5;
+	private static final int CALLS = 5000000;
+	
+	static Object sink;
+	
+	public static void main(String[] args) throws Throwable {
+		UserRemoteImpl bean = new UserRemoteImpl();
+		Field field = UserRemoteImpl.class.getDeclaredField("service");
+		field.setAccessible(true);
+		field.set(bean, new UserService());
+		Method method = UserRemoteImpl.class.getMethod("saveUser", User.class);
+		
+		User user = new User();
+		user.setId(1000);
+		user.setName("张三");
+		Object[] arguments = new Object[]{user};
+		
+		MethodInvoker reflective = MethodInvokers.reflective(bean, method);
+		MethodInvoker generated = MethodInvokers.create(bean, method);
+		
+		runReflective(reflective, arguments, WARMUP);
+		runGenerated(generated, arguments, WARMUP);
+		for(int i=0;i<ROUNDS;i++){
+			print("reflective", runReflective(reflective, arguments, CALLS));
+			print("generated ", runGenerated(generated, arguments, CALLS));
+		}
+	}
+	
+	private static long runReflective(MethodInvoker invoker, Object[] arguments, int calls) throws Throwable {
+		long start = System.nanoTime();
+		for(int i=0;i<calls;i++){
+			sink = invoker.invoke(arguments);
+		}
+		return System.nanoTime() - start;
+	}
+	
+	private static long runGenerated(MethodInvoker invoker, Object[] arguments, int calls) throws Throwable {
+		long start = System.nanoTime();
+		for(int i=0;i<calls;i++){
+			sink = invoker.invoke(arguments);
+		}
+		return System.nanoTime() - start;
+	}
+	
+	private static void print(String name, long cost) {
+		System.out.println(name+": "+String.format("%.2f", (double) cost / CALLS)+" ns/op");
+	}
+}
@@ -0,0 +1,46 @@
+package Yin.netty.rpc;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import dispatch.QueueDelay;
+
+public class QueueDelayTest {
+	private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+	private final QueueDelay delay = new QueueDelay(5 * MS, 100 * MS, 0);
+	
+	@Test
+	public void testIdleInterval(){
+		//第一个周期没有任何请求出队，不能因此进入过载
+		assertFalse(delay.shed(20 * MS, 150 * MS));
+		assertFalse(delay.isOverloaded());
+		assertFalse(delay.shed(20 * MS, 160 * MS));
+	}
+	
+	@Test
+	public void testEnterOverload(){
+		for(long t = 0; t < 100 * MS; t += 10 * MS){
+			assertFalse(delay.shed(8 * MS, t));
+		}
+		assertFalse(delay.shed(20 * MS, 99 * MS));//周期还没结束
+		assertFalse(delay.isOverloaded());
+		assertTrue(delay.shed(20 * MS, 100 * MS));//整个周期都高于 target
+		assertTrue(delay.isOverloaded());
+		assertFalse(delay.shed(8 * MS, 110 * MS));//不超过 2 * target 的照常执行
+	}
+	
+	@Test
+	public void testLeaveOverload(){
+		for(long t = 0; t <= 100 * MS; t += 10 * MS){
+			delay.shed(8 * MS, t);
+		}
+		assertTrue(delay.isOverloaded());
+		assertFalse(delay.shed(3 * MS, 120 * MS));
+		assertFalse(delay.isOverloaded());
+		assertFalse(delay.shed(20 * MS, 130 * MS));
+	}
+}
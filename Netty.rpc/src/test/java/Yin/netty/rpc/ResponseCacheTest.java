@@ -0,0 +1,69 @@
+package Yin.netty.rpc;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+import codec.EncodedResponse;
+import constants.Constans;
+import medium.ResponseCache;
+import model.ServerRequest;
+import serialize.SerializerFactory;
+import util.ResponseUtil;
+
+public class ResponseCacheTest {
+	private long nextId;
+
+	@Test
+	public void testLruEviction(){
+		ResponseCache cache = new ResponseCache(60000, 2);
+		cache.put(request(1), ResponseUtil.createSuccessResponse("a"));
+		cache.put(request(2), ResponseUtil.createSuccessResponse("b"));
+		assertNotNull(cache.get(request(1)));//1 变成最近访问的
+		cache.put(request(3), ResponseUtil.createSuccessResponse("c"));
+		assertEquals(2, cache.size());
+		assertNull(cache.get(request(2)));
+		assertNotNull(cache.get(request(1)));
+		assertNotNull(cache.get(request(3)));
+		assertEquals(3, cache.hits());
+		assertEquals(1, cache.misses());
+	}
+
+	@Test
+	public void testTtl() throws Exception{
+		ResponseCache cache = new ResponseCache(1, 10);
+		cache.put(request(1), ResponseUtil.createSuccessResponse("a"));
+		Thread.sleep(20);
+		assertEquals(1, cache.size());//过期的条目在读取时才丢弃
+		assertNull(cache.get(request(1)));
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void testOnlySuccess(){
+		ResponseCache cache = new ResponseCache(60000, 10);
+		ServerRequest request = request(1);
+		EncodedResponse failed = cache.put(request, ResponseUtil.createFailResponse(Constans.ERROR, "失败"));
+		assertEquals(request.getId().longValue(), failed.getId());
+		assertEquals(0, cache.size());
+		assertNull(cache.get(request(1)));
+
+		EncodedResponse written = cache.put(request(1), ResponseUtil.createSuccessResponse("a"));
+		ServerRequest again = request(1);
+		EncodedResponse cached = cache.get(again);
+		assertEquals(again.getId().longValue(), cached.getId());
+		assertArrayEquals(written.getBody(), cached.getBody());
+	}
+
+	//同样的参数字节，每次一个新的请求id
+	private ServerRequest request(int arg){
+		ServerRequest request = new ServerRequest();
+		request.setId(++nextId);
+		request.setSerializer(SerializerFactory.getDefault().getId());
+		request.setContent(new byte[]{(byte) arg});
+		return request;
+	}
+}
@@ -0,0 +1,172 @@
+package Yin.netty.rpc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Type;
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import codec.StreamChunk;
+import constants.Constans;
+import dispatch.Backpressure;
+import dispatch.ServerExecutors;
+import dispatch.ServerTask;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import medium.BeanMethod;
+import medium.MethodInvoker;
+import model.Response;
+import model.ServerRequest;
+import serialize.Serializer;
+import serialize.SerializerFactory;
+
+public class ServerTaskTest {
+
+	//流式方法的返回值：依次返回 0 到 size-1，记录是否被关闭
+	public static class Numbers implements Iterator<Integer>, AutoCloseable {
+		private final int size;
+		private int next;
+		private boolean closed;
+
+		Numbers(int size) {
+			this.size = size;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return next < size;
+		}
+
+		@Override
+		public Integer next() {
+			return next++;
+		}
+
+		@Override
+		public void close() {
+			closed = true;
+		}
+	}
+
+	public Iterator<Integer> numbers(){
+		return null;//只用于取得方法的返回类型
+	}
+
+	@Test
+	public void testCancelQueued() throws Exception{
+		EmbeddedChannel channel = new EmbeddedChannel(new ChannelInboundHandlerAdapter());
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(8));
+		final CountDownLatch release = new CountDownLatch(1);
+		executor.execute(new Runnable() {
+			
+			@Override
+			public void run() {
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		});
+		int pending = Backpressure.pending();
+		long cancelled = ServerTask.cancelledCount();
+		
+		ServerRequest request = new ServerRequest();
+		request.setId(1L);
+		ServerTask task = new ServerTask(channel.pipeline().firstContext(), request, null);
+		task.submit(executor);
+		assertTrue(executor.getQueue().contains(task));
+		assertEquals(pending + 1, Backpressure.pending());
+		
+		ServerTask.cancel(channel, 1L);
+		assertFalse(executor.getQueue().contains(task));//已从线程池队列中移除
+		assertEquals(pending, Backpressure.pending());
+		assertEquals(cancelled + 1, ServerTask.cancelledCount());
+		
+		release.countDown();
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+		channel.runPendingTasks();
+		assertNull(channel.readOutbound());//被取消的请求不写回响应
+		assertEquals(1L, executor.getCompletedTaskCount());//只执行了占住线程的任务
+	}
+	
+	@Test
+	public void testStreamCredit() throws Exception{
+		EmbeddedChannel channel = new EmbeddedChannel(new ChannelInboundHandlerAdapter());
+		int pending = Backpressure.pending();
+		Numbers numbers = new Numbers(5);
+		stream(channel, 2L, numbers);
+		assertNull(channel.readOutbound());//还没有额度
+		assertEquals(pending, Backpressure.pending());//等待额度期间不计入背压
+		
+		ServerTask.credit(channel, 2L, 2);
+		assertChunk(channel.readOutbound(), 0);
+		assertChunk(channel.readOutbound(), 1);
+		assertNull(channel.readOutbound());//额度用完，等待下一个 CREDIT
+		assertEquals(pending, Backpressure.pending());
+		
+		ServerTask.credit(channel, 2L, 10);
+		assertChunk(channel.readOutbound(), 2);
+		assertChunk(channel.readOutbound(), 3);
+		assertChunk(channel.readOutbound(), 4);
+		Response end = channel.readOutbound();
+		assertEquals(Constans.SUCCESS, end.getCode());
+		assertEquals(5, end.getResult());
+		assertNull(channel.readOutbound());
+		assertTrue(numbers.closed);
+		assertEquals(pending, Backpressure.pending());
+	}
+	
+	@Test
+	public void testCancelStream() throws Exception{
+		EmbeddedChannel channel = new EmbeddedChannel(new ChannelInboundHandlerAdapter());
+		int pending = Backpressure.pending();
+		Numbers numbers = new Numbers(100);
+		stream(channel, 3L, numbers);
+		ServerTask.credit(channel, 3L, 2);
+		assertChunk(channel.readOutbound(), 0);
+		assertChunk(channel.readOutbound(), 1);
+		assertFalse(numbers.closed);
+		
+		ServerTask.cancel(channel, 3L);
+		assertTrue(numbers.closed);//取消时关闭迭代器
+		assertNull(channel.readOutbound());//不再写出元素，也不写回结束响应
+		assertEquals(pending, Backpressure.pending());
+		ServerTask.credit(channel, 3L, 10);
+		assertNull(channel.readOutbound());
+	}
+	
+	//在调用线程上执行（INLINE）一个返回 iterator 的流式方法
+	private void stream(EmbeddedChannel channel, long id, final Iterator<Integer> iterator) throws Exception{
+		BeanMethod beanMethod = new BeanMethod();
+		beanMethod.setMethod(ServerTaskTest.class.getMethod("numbers"));
+		beanMethod.setInvoker(new MethodInvoker() {
+			
+			@Override
+			public Object invoke(Object[] args) {
+				return iterator;
+			}
+		});
+		ServerRequest request = new ServerRequest();
+		request.setId(id);
+		Serializer serializer = SerializerFactory.getDefault();
+		request.setSerializer(serializer.getId());
+		request.setContent(serializer.serializeArgs(new Object[0], new Type[0]));
+		new ServerTask(channel.pipeline().firstContext(), request, beanMethod).submit(ServerExecutors.INLINE);
+	}
+	
+	private static void assertChunk(Object msg, int seq){
+		StreamChunk chunk = (StreamChunk) msg;
+		assertEquals(seq, chunk.getSeq());
+		assertEquals(seq, chunk.getElement());
+	}
+}